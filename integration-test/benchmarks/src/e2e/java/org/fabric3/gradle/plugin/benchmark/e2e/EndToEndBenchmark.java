@@ -0,0 +1,189 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.benchmark.e2e;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fabric3.gradle.plugin.itest.history.Baseline;
+import org.fabric3.gradle.plugin.itest.metrics.MetricsWriter;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+
+/**
+ * Runs <code>fabric3Test</code> through Gradle TestKit against synthetic builds of increasing size and records the duration of each task phase, along with
+ * heap and thread high-water marks, from the metrics file written by the task.
+ *
+ * The build shapes are the cross product of the configured contribution, component and test counts. Each shape is generated once, run a number of times
+ * to warm the daemon and compile the projects, and then measured. Results are appended to a tab-separated file, one line per shape and phase, so runs of
+ * different plugin versions can be compared.
+ *
+ * Configuration is read from system properties prefixed with <code>fabric3.benchmark.</code>; see the benchmarks build script for the defaults.
+ */
+public class EndToEndBenchmark {
+    private static final String PREFIX = "fabric3.benchmark.";
+    private static final String WALL_CLOCK = "Wall clock";
+    private static final String HEADER = "# date\tgradle\tcontributions\tcomponents\ttests\textensions\tmetric\truns\tmin\tmedian\tp95\tmax";
+
+    private File workDirectory;
+    private File output;
+    private String repository;
+    private List<File> pluginClasspath;
+    private String gradleVersion;
+    private int warmups;
+    private int runs;
+
+    public static void main(String[] args) throws IOException {
+        EndToEndBenchmark benchmark = new EndToEndBenchmark();
+        List<String> extensions = split(System.getProperty(PREFIX + "extensions", ""));
+        for (int contributions : parse(System.getProperty(PREFIX + "contributions", "1,4"))) {
+            for (int components : parse(System.getProperty(PREFIX + "components", "1,10"))) {
+                for (int tests : parse(System.getProperty(PREFIX + "tests", "10"))) {
+                    benchmark.run(new SyntheticBuild(contributions, components, tests, extensions));
+                }
+            }
+        }
+    }
+
+    public EndToEndBenchmark() {
+        workDirectory = new File(required("workDir"));
+        output = new File(required("output"));
+        repository = new File(System.getProperty(PREFIX + "repository", System.getProperty("user.home") + "/.m2/repository")).toURI().toString();
+        pluginClasspath = new ArrayList<>();
+        for (String path : required("pluginClasspath").split(File.pathSeparator)) {
+            pluginClasspath.add(new File(path));
+        }
+        gradleVersion = System.getProperty(PREFIX + "gradleVersion");
+        warmups = Integer.parseInt(System.getProperty(PREFIX + "warmups", "2"));
+        runs = Integer.parseInt(System.getProperty(PREFIX + "runs", "5"));
+    }
+
+    /**
+     * Generates and measures a build.
+     *
+     * @param build the build
+     * @throws IOException if the build or results cannot be written
+     */
+    public void run(SyntheticBuild build) throws IOException {
+        File dir = new File(workDirectory, build.getLabel());
+        delete(dir);
+        build.generate(dir, repository, pluginClasspath);
+
+        GradleRunner runner = GradleRunner.create().withProjectDir(dir).withArguments("fabric3Test", "--stacktrace");
+        if (gradleVersion != null) {
+            runner = runner.withGradleVersion(gradleVersion);
+        }
+        System.out.println("Benchmarking " + build.getLabel() + " in " + dir);
+        for (int i = 0; i < warmups; i++) {
+            runner.build();
+        }
+        File metricsFile = new File(dir, "build/metrics/" + MetricsWriter.OPEN_METRICS_FILE);
+        Map<String, long[]> samples = new LinkedHashMap<>();
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            BuildResult result = runner.build();
+            long wallClock = (System.nanoTime() - start) / 1000000;
+            if (!metricsFile.exists()) {
+                throw new IllegalStateException("No metrics written for " + build.getLabel() + ":\n" + result.getOutput());
+            }
+            Map<String, Long> phases = MetricsFile.parse(metricsFile);
+            metricsFile.delete();
+            phases.put(WALL_CLOCK, wallClock);
+            for (Map.Entry<String, Long> entry : phases.entrySet()) {
+                long[] values = samples.get(entry.getKey());
+                if (values == null) {
+                    values = new long[runs];
+                    samples.put(entry.getKey(), values);
+                }
+                values[i] = entry.getValue();
+            }
+        }
+        writeResults(build, samples);
+    }
+
+    private void writeResults(SyntheticBuild build, Map<String, long[]> samples) throws IOException {
+        boolean exists = output.exists();
+        Files.createDirectories(output.getAbsoluteFile().getParentFile().toPath());
+        String date = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(new Date());
+        String version = gradleVersion != null ? gradleVersion : "default";
+        try (Writer writer = Files.newBufferedWriter(output.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (!exists) {
+                writer.write(HEADER + "\n");
+            }
+            for (Map.Entry<String, long[]> entry : samples.entrySet()) {
+                long[] values = entry.getValue();
+                Baseline baseline = Baseline.calculate(values);
+                long[] sorted = values.clone();
+                Arrays.sort(sorted);
+                String line = date + "\t" + version + "\t" + build.getContributions() + "\t" + build.getComponents() + "\t" + build.getTests() + "\t"
+                              + build.getExtensions().size() + "\t" + entry.getKey() + "\t" + values.length + "\t" + sorted[0] + "\t" + baseline.getMedian()
+                              + "\t" + baseline.getP95() + "\t" + sorted[sorted.length - 1];
+                writer.write(line + "\n");
+                System.out.println("  " + entry.getKey() + ": median " + baseline.getMedian() + " ms, p95 " + baseline.getP95() + " ms");
+            }
+        }
+    }
+
+    private static String required(String name) {
+        String value = System.getProperty(PREFIX + name);
+        if (value == null) {
+            throw new IllegalArgumentException("System property not set: " + PREFIX + name);
+        }
+        return value;
+    }
+
+    private static List<Integer> parse(String values) {
+        List<Integer> parsed = new ArrayList<>();
+        for (String value : split(values)) {
+            parsed.add(Integer.parseInt(value));
+        }
+        return parsed;
+    }
+
+    private static List<String> split(String values) {
+        if (values.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> list = new ArrayList<>();
+        for (String value : values.split(",")) {
+            list.add(value.trim());
+        }
+        return list;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.benchmark.e2e;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the OpenMetrics file written by the test task when metrics are enabled.
+ */
+public final class MetricsFile {
+    public static final String TOTAL = "Total";
+    public static final String PEAK_HEAP = "Peak heap bytes";
+    public static final String PEAK_THREADS = "Peak threads";
+
+    private static final String PHASE = "fabric3_test_phase_duration_seconds";
+    private static final String DURATION = "fabric3_test_duration_seconds";
+    private static final String HEAP = "fabric3_test_heap_peak_used_bytes";
+    private static final String THREADS = "fabric3_test_threads_peak";
+    private static final String PHASE_LABEL = "phase=\"";
+
+    private MetricsFile() {
+    }
+
+    /**
+     * Parses a metrics file.
+     *
+     * @param file the file
+     * @return phase durations in milliseconds in the order they were recorded, followed by the total duration and the peak heap and thread counts
+     * @throws IOException if the file cannot be read
+     */
+    public static Map<String, Long> parse(File file) throws IOException {
+        Map<String, Long> values = new LinkedHashMap<>();
+        Long total = null;
+        Long heap = null;
+        Long threads = null;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#")) {
+                    continue;
+                }
+                int end = line.lastIndexOf(' ');
+                if (end < 0) {
+                    continue;
+                }
+                String value = line.substring(end + 1);
+                if (line.startsWith(PHASE + "{")) {
+                    values.put(label(line, line.indexOf(PHASE_LABEL) + PHASE_LABEL.length()), millis(value));
+                } else if (line.startsWith(DURATION + "{")) {
+                    total = millis(value);
+                } else if (line.startsWith(HEAP + "{")) {
+                    heap = Long.parseLong(value);
+                } else if (line.startsWith(THREADS + "{")) {
+                    threads = Long.parseLong(value);
+                }
+            }
+        }
+        if (total != null) {
+            values.put(TOTAL, total);
+        }
+        if (heap != null) {
+            values.put(PEAK_HEAP, heap);
+        }
+        if (threads != null) {
+            values.put(PEAK_THREADS, threads);
+        }
+        return values;
+    }
+
+    private static String label(String line, int start) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = start; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                break;
+            } else if (c == '\\' && i + 1 < line.length()) {
+                char next = line.charAt(++i);
+                builder.append(next == 'n' ? '\n' : next);
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static long millis(String seconds) {
+        return Math.round(Double.parseDouble(seconds) * 1000);
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.benchmark.e2e;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Generates a multi-project build that runs <code>fabric3Test</code> against a configurable number of contributions, test components and test methods.
+ *
+ * Each contribution project provides a single service component. The root project contains the test components, each of which is wired to one of the
+ * contribution services and invokes it from every test method.
+ */
+public class SyntheticBuild {
+    private static final String SCA_API = "org.codehaus.fabric3.spec:sca-api:1.1.4";
+    private static final String JUNIT = "junit:junit:4.12";
+
+    private int contributions;
+    private int components;
+    private int tests;
+    private List<String> extensions;
+
+    /**
+     * Constructor.
+     *
+     * @param contributions the number of contribution projects
+     * @param components    the number of test components
+     * @param tests         the number of test methods per component
+     * @param extensions    the runtime extensions, specified as Maven coordinates
+     */
+    public SyntheticBuild(int contributions, int components, int tests, List<String> extensions) {
+        this.contributions = contributions;
+        this.components = components;
+        this.tests = tests;
+        this.extensions = extensions;
+    }
+
+    /**
+     * Returns a label that identifies the build shape in results.
+     *
+     * @return the label
+     */
+    public String getLabel() {
+        return contributions + "x" + components + "x" + tests + "+" + extensions.size();
+    }
+
+    public int getContributions() {
+        return contributions;
+    }
+
+    public int getComponents() {
+        return components;
+    }
+
+    public int getTests() {
+        return tests;
+    }
+
+    public List<String> getExtensions() {
+        return extensions;
+    }
+
+    /**
+     * Writes the build to a directory.
+     *
+     * @param dir             the root project directory
+     * @param repository      the URL of the file-based Maven repository used for all dependency and runtime resolution
+     * @param pluginClasspath the classpath of the plugin under test
+     * @throws IOException if the build cannot be written
+     */
+    public void generate(File dir, String repository, List<File> pluginClasspath) throws IOException {
+        StringBuilder settings = new StringBuilder("rootProject.name = 'synthetic'\n");
+        for (int i = 0; i < contributions; i++) {
+            settings.append("include 'contribution-").append(i).append("'\n");
+            generateContribution(new File(dir, "contribution-" + i), i);
+        }
+        write(new File(dir, "settings.gradle"), settings.toString());
+        write(new File(dir, "build.gradle"), createBuildScript(repository, pluginClasspath));
+        generateTests(dir);
+    }
+
+    private String createBuildScript(String repository, List<File> pluginClasspath) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("buildscript {\n    dependencies {\n        classpath files(\n");
+        for (int i = 0; i < pluginClasspath.size(); i++) {
+            builder.append("            ").append(quote(pluginClasspath.get(i).getAbsolutePath()));
+            builder.append(i < pluginClasspath.size() - 1 ? ",\n" : ")\n");
+        }
+        builder.append("    }\n}\n\n");
+        builder.append("allprojects {\n    repositories {\n        maven {\n            name 'benchmark'\n            url ").append(quote(repository));
+        builder.append("\n        }\n    }\n    apply plugin: 'java'\n    sourceCompatibility = 1.7\n    targetCompatibility = 1.7\n");
+        builder.append("    dependencies {\n        compile '").append(SCA_API).append("'\n    }\n}\n\n");
+        builder.append("apply plugin: 'fabric3-test'\n\ndependencies {\n    testCompile '").append(JUNIT).append("'\n");
+        for (int i = 0; i < contributions; i++) {
+            builder.append("    testCompile project(':contribution-").append(i).append("')\n");
+        }
+        builder.append("}\n\nconvention.getByName('fabric3Test').with {\n    metrics = true\n    metricsDirectory = file('build/metrics')\n");
+        for (String extension : extensions) {
+            builder.append("    extension ").append(quote(extension)).append("\n");
+        }
+        for (int i = 0; i < contributions; i++) {
+            builder.append("    contribution project(':contribution-").append(i).append("')\n");
+        }
+        builder.append("}\n\nfabric3Test.dependsOn testClasses, subprojects.collect { it.tasks.jar }\n");
+        return builder.toString();
+    }
+
+    private void generateContribution(File dir, int index) throws IOException {
+        String pkg = "bench.c" + index;
+        File sources = new File(dir, "src/main/java/bench/c" + index);
+        write(new File(sources, "Service" + index + ".java"),
+              "package " + pkg + ";\n\npublic interface Service" + index + " {\n    String call(String value);\n}\n");
+        write(new File(sources, "Service" + index + "Impl.java"),
+              "package " + pkg + ";\n\npublic class Service" + index + "Impl implements Service" + index + " {\n"
+              + "    public String call(String value) {\n        return value;\n    }\n}\n");
+        File resources = new File(dir, "src/main/resources/META-INF");
+        write(new File(resources, "sca-contribution.xml"),
+              "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+              + "<contribution xmlns=\"http://docs.oasis-open.org/ns/opencsa/sca/200912\" xmlns:b=\"urn:bench\">\n"
+              + "    <export.java package=\"" + pkg + "\"/>\n"
+              + "    <deployable composite=\"b:Contribution" + index + "\"/>\n"
+              + "</contribution>\n");
+        write(new File(resources, "contribution.composite"),
+              "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+              + "<composite xmlns=\"http://docs.oasis-open.org/ns/opencsa/sca/200912\" targetNamespace=\"urn:bench\" name=\"Contribution" + index + "\">\n"
+              + "    <component name=\"Service" + index + "\">\n"
+              + "        <implementation.java class=\"" + pkg + ".Service" + index + "Impl\"/>\n"
+              + "    </component>\n"
+              + "</composite>\n");
+    }
+
+    private void generateTests(File dir) throws IOException {
+        File sources = new File(dir, "src/test/java/bench/tests");
+        StringBuilder composite = new StringBuilder();
+        composite.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        composite.append("<composite xmlns=\"http://docs.oasis-open.org/ns/opencsa/sca/200912\" xmlns:f3=\"urn:fabric3.org\" ");
+        composite.append("targetNamespace=\"urn:fabric3.org\" name=\"TestComposite\">\n");
+        for (int i = 0; i < components; i++) {
+            String className = "Component" + i + "Test";
+            StringBuilder source = new StringBuilder("package bench.tests;\n\nimport org.junit.Assert;\nimport org.junit.Test;\n");
+            source.append("import org.oasisopen.sca.annotation.Reference;\n");
+            int target = contributions > 0 ? i % contributions : -1;
+            if (target >= 0) {
+                source.append("import bench.c").append(target).append(".Service").append(target).append(";\n");
+            }
+            source.append("\npublic class ").append(className).append(" {\n");
+            if (target >= 0) {
+                source.append("    @Reference\n    protected Service").append(target).append(" service;\n");
+            }
+            for (int j = 0; j < tests; j++) {
+                source.append("\n    @Test\n    public void test").append(j).append("() {\n");
+                if (target >= 0) {
+                    source.append("        Assert.assertEquals(\"").append(j).append("\", service.call(\"").append(j).append("\"));\n");
+                } else {
+                    source.append("        Assert.assertEquals(").append(j).append(", ").append(j).append(");\n");
+                }
+                source.append("    }\n");
+            }
+            source.append("}\n");
+            write(new File(sources, className + ".java"), source.toString());
+
+            composite.append("    <component name=\"").append(className).append("\">\n");
+            composite.append("        <f3:junit class=\"bench.tests.").append(className).append("\"/>\n");
+            if (target >= 0) {
+                composite.append("        <reference name=\"service\" target=\"Service").append(target).append("\"/>\n");
+            }
+            composite.append("    </component>\n");
+        }
+        composite.append("</composite>\n");
+        File resources = new File(dir, "src/test/resources/META-INF");
+        write(new File(resources, "test.composite"), composite.toString());
+        StringBuilder contribution = new StringBuilder();
+        contribution.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        contribution.append("<contribution xmlns=\"http://docs.oasis-open.org/ns/opencsa/sca/200912\" xmlns:f3=\"urn:fabric3.org\">\n");
+        for (int i = 0; i < contributions; i++) {
+            contribution.append("    <import.java package=\"bench.c").append(i).append("\"/>\n");
+        }
+        contribution.append("    <deployable composite=\"f3:TestComposite\"/>\n</contribution>\n");
+        write(new File(resources, "sca-contribution.xml"), contribution.toString());
+    }
+
+    private String quote(String value) {
+        return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+
+    private void write(File file, String contents) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(contents);
+        }
+    }
+}
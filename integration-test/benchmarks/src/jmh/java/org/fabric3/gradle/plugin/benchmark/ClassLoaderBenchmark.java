@@ -0,0 +1,97 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.fabric3.api.host.classloader.MaskingClassLoader;
+import org.fabric3.api.host.runtime.HiddenPackages;
+import org.fabric3.gradle.plugin.itest.classloader.TrieMaskingClassLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the cost of masking in the host masking classloader, which scans the list of hidden packages, with the trie-based classloader used by the
+ * plugin. The parent returns a fixed class without a lookup so that scores are dominated by masking; the "none" implementation delegates without
+ * masking and gives the baseline. Loading masked classes includes the cost of creating a ClassNotFoundException, so masked and unmasked names are
+ * measured separately.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ClassLoaderBenchmark {
+    private static final String[] UNMASKED = {"java.lang.String",
+                                              "java.util.concurrent.ConcurrentHashMap",
+                                              "org.gradle.api.Project",
+                                              "org.fabric3.gradle.plugin.api.test.TestRecorder",
+                                              "com.example.tests.OrderServiceTest"};
+
+    @Param({"none", "scan", "trie"})
+    private String implementation;
+
+    @Param({"false", "true"})
+    private boolean masked;
+
+    private ClassLoader loader;
+    private String[] names;
+
+    @Setup
+    public void setUp() {
+        ClassLoader parent = new ClassLoader(null) {
+            protected Class<?> loadClass(String name, boolean resolve) {
+                return Object.class;
+            }
+        };
+        String[] hidden = HiddenPackages.getPackages();
+        if ("trie".equals(implementation)) {
+            loader = new TrieMaskingClassLoader(parent, hidden);
+        } else if ("scan".equals(implementation)) {
+            loader = new MaskingClassLoader(parent, hidden);
+        } else {
+            loader = new ClassLoader(parent) {
+            };
+        }
+        if (masked) {
+            // one class per hidden package
+            names = new String[hidden.length];
+            for (int i = 0; i < hidden.length; i++) {
+                names[i] = hidden[i] + (hidden[i].endsWith(".") ? "" : ".") + "Masked";
+            }
+        } else {
+            names = UNMASKED;
+        }
+    }
+
+    @Benchmark
+    public void loadClass(Blackhole blackhole) {
+        for (String name : names) {
+            try {
+                blackhole.consume(loader.loadClass(name));
+            } catch (ClassNotFoundException e) {
+                // masked
+                blackhole.consume(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.fabric3.api.annotation.monitor.MonitorLevel;
+import org.fabric3.gradle.plugin.itest.runtime.AsyncDestinationRouter;
+import org.fabric3.gradle.plugin.itest.runtime.OverflowPolicy;
+import org.fabric3.gradle.plugin.itest.runtime.PluginDestinationRouter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the cost of routing monitor events to the Gradle logger with the corresponding log level enabled and disabled, synchronously and through
+ * the monitor buffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DestinationRouterBenchmark {
+
+    @Param({"false", "true"})
+    private boolean enabled;
+
+    @Param({"0", "8192"})
+    private int bufferSize;
+
+    private PluginDestinationRouter router;
+
+    @Setup
+    public void setUp() {
+        if (bufferSize == 0) {
+            router = new PluginDestinationRouter(Stubs.createLogger(enabled));
+        } else {
+            router = new AsyncDestinationRouter(Stubs.createLogger(enabled), 0, bufferSize, OverflowPolicy.BLOCK);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        router.close();
+    }
+
+    @Benchmark
+    public void sendInfo() {
+        router.send(MonitorLevel.INFO, 0, System.currentTimeMillis(), "benchmark", "Message {0}", false, "argument");
+    }
+
+    @Benchmark
+    public void sendDebug() {
+        router.send(MonitorLevel.DEBUG, 0, System.currentTimeMillis(), "benchmark", "Message {0}", false, "argument");
+    }
+}
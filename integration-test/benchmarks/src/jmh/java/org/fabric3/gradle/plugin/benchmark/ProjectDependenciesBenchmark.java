@@ -0,0 +1,67 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.fabric3.gradle.plugin.itest.resolver.ProjectDependencies;
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures locating the archive of a contribution project whose libs directory contains one or several artifacts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProjectDependenciesBenchmark {
+
+    @Param({"single", "multiple"})
+    private String layout;
+
+    private Project project;
+
+    @Setup
+    public void setUp() throws IOException {
+        File projectDir = Files.createTempDirectory("fabric3-benchmark").toFile();
+        project = ProjectBuilder.builder().withProjectDir(projectDir).withName("contribution").build();
+        File libs = new File(project.getBuildDir(), "libs");
+        Files.createDirectories(libs.toPath());
+        new File(libs, "contribution.jar").createNewFile();
+        if ("multiple".equals(layout)) {
+            new File(libs, "contribution-sources.jar").createNewFile();
+            new File(libs, "contribution-javadoc.jar").createNewFile();
+            new File(libs, "contribution.war").createNewFile();
+        }
+    }
+
+    @Benchmark
+    public File findArtifact() {
+        return ProjectDependencies.findArtifact(project);
+    }
+}
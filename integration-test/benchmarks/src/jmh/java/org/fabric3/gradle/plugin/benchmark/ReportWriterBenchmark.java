@@ -0,0 +1,89 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.fabric3.gradle.plugin.api.test.TestSuiteResult;
+import org.fabric3.gradle.plugin.itest.report.JUnitReportWriterImpl;
+import org.fabric3.gradle.plugin.itest.report.ReportException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures JUnit report generation for runs of different sizes, writing to a stream that discards its output so only serialization is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReportWriterBenchmark {
+
+    @Param({"100", "1000"})
+    private int suites;
+
+    @Param({"20"})
+    private int tests;
+
+    private JUnitReportWriterImpl writer;
+    private List<TestSuiteResult> results;
+    private CountingOutputStream stream;
+
+    @Setup
+    public void setUp() {
+        writer = new JUnitReportWriterImpl();
+        results = Stubs.createResults(suites, tests, 50);
+        stream = new CountingOutputStream();
+    }
+
+    @Benchmark
+    public long writeReport() throws ReportException {
+        writer.write(results, stream);
+        return stream.count;
+    }
+
+    @Benchmark
+    public long writeFragments() throws ReportException {
+        for (TestSuiteResult result : results) {
+            writer.writeFragment(result, stream);
+        }
+        return stream.count;
+    }
+
+    /**
+     * Discards output while counting bytes so the writes cannot be eliminated.
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        public void write(int b) throws IOException {
+            count++;
+        }
+
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            count = count + length;
+        }
+    }
+}
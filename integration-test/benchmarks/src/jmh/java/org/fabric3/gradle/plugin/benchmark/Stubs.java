@@ -0,0 +1,147 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.fabric3.gradle.plugin.api.test.TestFailure;
+import org.fabric3.gradle.plugin.api.test.TestResult;
+import org.fabric3.gradle.plugin.api.test.TestSuiteResult;
+import org.fabric3.spi.container.invocation.Message;
+import org.fabric3.spi.container.wire.Interceptor;
+import org.fabric3.spi.container.wire.InvocationChain;
+import org.fabric3.spi.container.wire.Wire;
+import org.fabric3.spi.model.physical.PhysicalOperation;
+import org.gradle.api.logging.Logger;
+
+/**
+ * Creates lightweight stand-ins for runtime and Gradle types used by the benchmarks.
+ */
+public final class Stubs {
+
+    private Stubs() {
+    }
+
+    /**
+     * Creates a wire with the given number of invocation chains, each with a single interceptor that returns the request message.
+     *
+     * @param chains the number of chains
+     * @return the wire
+     */
+    public static Wire createWire(int chains) {
+        final Interceptor interceptor = proxy(Interceptor.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("invoke".equals(method.getName())) {
+                    return (Message) args[0];
+                }
+                return defaultValue(method);
+            }
+        });
+        final List<InvocationChain> list = new ArrayList<>();
+        for (int i = 0; i < chains; i++) {
+            final PhysicalOperation operation = new PhysicalOperation();
+            operation.setName("test" + i);
+            list.add(proxy(InvocationChain.class, new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    switch (method.getName()) {
+                        case "getPhysicalOperation":
+                            return operation;
+                        case "getHeadInterceptor":
+                        case "getTailInterceptor":
+                            return interceptor;
+                        default:
+                            return defaultValue(method);
+                    }
+                }
+            }));
+        }
+        return proxy(Wire.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getInvocationChains".equals(method.getName())) {
+                    return list;
+                }
+                return defaultValue(method);
+            }
+        });
+    }
+
+    /**
+     * Creates a logger that discards messages and reports all levels as enabled or disabled.
+     *
+     * @param enabled whether log levels are enabled
+     * @return the logger
+     */
+    public static Logger createLogger(final boolean enabled) {
+        return proxy(Logger.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().startsWith("is") && method.getReturnType() == boolean.class) {
+                    return enabled;
+                }
+                return defaultValue(method);
+            }
+        });
+    }
+
+    /**
+     * Creates suite results.
+     *
+     * @param suites       the number of suites
+     * @param tests        the number of tests per suite
+     * @param failureEvery the interval at which a test fails, or 0 for no failures
+     * @return the results
+     */
+    public static List<TestSuiteResult> createResults(int suites, int tests, int failureEvery) {
+        TestFailure failure = TestFailure.from(new AssertionError("expected:<1> but was:<2>"));
+        List<TestSuiteResult> results = new ArrayList<>(suites);
+        int count = 0;
+        for (int i = 0; i < suites; i++) {
+            String className = "org.fabric3.tests.Suite" + i;
+            TestSuiteResult suite = new TestSuiteResult(className, 0, tests);
+            for (int j = 0; j < tests; j++) {
+                count++;
+                if (failureEvery > 0 && count % failureEvery == 0) {
+                    suite.add(new TestResult(className, "test" + j, failure, 0, 1));
+                } else {
+                    suite.add(new TestResult(className, "test" + j, TestResult.Type.SUCCESS, 0, 1));
+                }
+            }
+            results.add(suite);
+        }
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.fabric3.gradle.plugin.api.test.TestFailure;
+import org.fabric3.gradle.plugin.api.test.TestRecorder;
+import org.fabric3.gradle.plugin.api.test.TestResult;
+import org.fabric3.gradle.plugin.api.test.TestSuiteResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures recording throughput when several threads report results concurrently, and the cost of reading counts while results are recorded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TestRecorderBenchmark {
+    private TestRecorder recorder;
+    private TestSuiteResult success;
+    private TestSuiteResult failure;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        recorder = new TestRecorder();
+        recorder.setRetainResults(false);
+        success = new TestSuiteResult("org.fabric3.tests.BenchmarkTest");
+        success.add(new TestResult("org.fabric3.tests.BenchmarkTest", "testSuccess", TestResult.Type.SUCCESS, 0, 1));
+        TestFailure testFailure = TestFailure.from(new AssertionError("failed"));
+        failure = new TestSuiteResult("org.fabric3.tests.BenchmarkTest");
+        failure.add(new TestResult("org.fabric3.tests.BenchmarkTest", "testFailure", testFailure, 0, 1));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void recordSingleThread() {
+        recorder.result(success);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordFourThreads() {
+        recorder.result(success);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void recordMaxThreads() {
+        recorder.result(success);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public void mixedRecord() {
+        recorder.result(success);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void mixedRecordFailure() {
+        recorder.result(failure);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public boolean mixedRead() {
+        return recorder.hasFailures() && recorder.getSuccessfulTests() + recorder.getFailedTests() > 0;
+    }
+}
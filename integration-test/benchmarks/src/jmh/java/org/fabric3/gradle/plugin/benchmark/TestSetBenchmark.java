@@ -0,0 +1,64 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.fabric3.gradle.plugin.api.test.TestOptions;
+import org.fabric3.gradle.plugin.api.test.TestRecorder;
+import org.fabric3.gradle.plugin.test.TestSet;
+import org.fabric3.spi.container.wire.Wire;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the per-test overhead of executing a test set against a wire whose interceptors return immediately. Scores are per test.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TestSetBenchmark {
+    private static final int TESTS = 256;
+
+    @Param({"false", "true"})
+    private boolean captureOutput;
+
+    private TestSet testSet;
+
+    @Setup
+    public void setUp() {
+        Wire wire = Stubs.createWire(TESTS);
+        TestRecorder recorder = new TestRecorder();
+        recorder.setRetainResults(false);
+        TestOptions options = new TestOptions();
+        options.setCaptureOutput(captureOutput);
+        testSet = new TestSet("org.fabric3.tests.BenchmarkTest", wire, recorder, options);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TESTS)
+    public void execute() {
+        testSet.execute();
+    }
+}
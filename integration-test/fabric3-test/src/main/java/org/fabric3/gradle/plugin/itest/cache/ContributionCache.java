@@ -0,0 +1,241 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A content-addressed cache of extracted contribution archives.
+ *
+ * Archives are keyed by their SHA-1 checksum so an extracted contribution is reused across runs and projects until its contents change. Extraction is done
+ * in a private staging directory which is atomically moved into place, making the cache safe to share between concurrent builds.
+ *
+ * Extracted contributions are deployed in place, so their files and directories are made read-only before they are moved into the cache. Each use
+ * updates the modification time of the contribution directory, and {@link #prune(long)} removes contributions that have not been used recently.
+ */
+public class ContributionCache {
+    private static final String ALGORITHM = "SHA-1";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final String STAGING_PREFIX = ".staging-";
+    private static final String EVICTED_PREFIX = ".evicted-";
+
+    private File root;
+    private AtomicInteger hits = new AtomicInteger();
+    private AtomicInteger misses = new AtomicInteger();
+
+    public ContributionCache(File root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns the directory containing the extracted contents of the archive, extracting it if it is not already cached.
+     *
+     * @param archive the archive
+     * @return the directory containing the extracted archive contents
+     * @throws IOException if there is an error reading or extracting the archive
+     */
+    public File extract(File archive) throws IOException {
+        String checksum = checksum(archive);
+        File target = new File(root, checksum);
+        if (target.isDirectory()) {
+            hits.incrementAndGet();
+            // record the use so the contribution is not pruned
+            target.setLastModified(System.currentTimeMillis());
+            return target;
+        }
+        misses.incrementAndGet();
+        Files.createDirectories(root.toPath());
+        Path staging = Files.createTempDirectory(root.toPath(), STAGING_PREFIX);
+        try {
+            unzip(archive, staging.toFile());
+            makeReadOnly(staging);
+            try {
+                Files.move(staging, target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(staging, target.toPath());
+            }
+        } catch (FileAlreadyExistsException e) {
+            // another build extracted the same archive concurrently
+        } catch (IOException e) {
+            if (!target.isDirectory()) {
+                throw e;
+            }
+            // another build extracted the same archive concurrently
+        } finally {
+            Directories.delete(staging.toFile());
+        }
+        return target;
+    }
+
+    /**
+     * Returns the number of archives found in the cache.
+     *
+     * @return the number of cache hits
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of archives that were extracted because they were not cached.
+     *
+     * @return the number of cache misses
+     */
+    public int getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Removes contributions, and staging directories left by interrupted extractions, that have not been used within the given age. Errors are ignored
+     * since another build may be pruning or using the cache concurrently.
+     *
+     * @param maxAge the maximum age in milliseconds
+     * @return the number of removed entries
+     */
+    public int prune(long maxAge) {
+        File[] entries = root.listFiles();
+        if (entries == null) {
+            return 0;
+        }
+        long cutoff = System.currentTimeMillis() - maxAge;
+        int removed = 0;
+        for (File entry : entries) {
+            if (!entry.isDirectory() || entry.lastModified() >= cutoff) {
+                continue;
+            }
+            if (entry.getName().startsWith(EVICTED_PREFIX)) {
+                // left by an interrupted prune
+                Directories.delete(entry);
+                continue;
+            }
+            // move the entry out of the way first so that concurrent builds extract the archive again rather than seeing a partially deleted entry
+            File evicted = new File(root, EVICTED_PREFIX + entry.getName());
+            try {
+                Files.move(entry.toPath(), evicted.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                continue;
+            }
+            Directories.delete(evicted);
+            removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * Calculates the checksum of an archive.
+     *
+     * @param archive the archive
+     * @return the checksum as a hex string
+     * @throws IOException if there is an error reading the archive
+     */
+    public String checksum(File archive) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        try (FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        byte[] bytes = digest.digest();
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    private void makeReadOnly(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @SuppressWarnings("ResultOfMethodCallIgnored")
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                file.toFile().setWritable(false, false);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @SuppressWarnings("ResultOfMethodCallIgnored")
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                dir.toFile().setWritable(false, false);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    private void unzip(File archive, File destination) throws IOException {
+        String canonicalDestination = destination.getCanonicalPath() + File.separator;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                File file = new File(destination, entry.getName());
+                if (!file.getCanonicalPath().startsWith(canonicalDestination)) {
+                    throw new IOException("Archive entry is outside of the extraction directory: " + entry.getName());
+                }
+                if (entry.isDirectory()) {
+                    file.mkdirs();
+                    continue;
+                }
+                file.getParentFile().mkdirs();
+                try (InputStream in = zipFile.getInputStream(entry); OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE)) {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                    }
+                }
+                if (entry.getTime() != -1) {
+                    file.setLastModified(entry.getTime());
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.gradle.api.GradleException;
+
+/**
+ * Manages runtime scratch directories.
+ */
+public class Directories {
+
+    /**
+     * Creates a scratch directory private to a single runtime instance.
+     *
+     * @param parent the parent directory
+     * @return the scratch directory
+     * @throws GradleException if the directory cannot be created
+     */
+    public static File createScratchDirectory(File parent) throws GradleException {
+        try {
+            Files.createDirectories(parent.toPath());
+            return Files.createTempDirectory(parent.toPath(), "run-").toFile();
+        } catch (IOException e) {
+            throw new GradleException("Unable to create runtime scratch directory in " + parent, e);
+        }
+    }
+
+    /**
+     * Recursively deletes a directory, ignoring errors. Read-only files and directories, such as cached contributions, are made writable first.
+     *
+     * @param directory the directory
+     */
+    public static void delete(File directory) {
+        if (directory == null || !directory.exists()) {
+            return;
+        }
+        try {
+            Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+                @SuppressWarnings("ResultOfMethodCallIgnored")
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    dir.toFile().setWritable(true);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @SuppressWarnings("ResultOfMethodCallIgnored")
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    // required to delete read-only files on Windows
+                    file.toFile().setWritable(true);
+                    Files.deleteIfExists(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    Files.deleteIfExists(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    private Directories() {
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.classloader;
+
+import java.util.Arrays;
+
+/**
+ * An immutable prefix trie compiled from a set of package or resource prefixes.
+ *
+ * A lookup walks the trie at most once per character of the name and stops at the first character that does not continue a prefix, so its cost is
+ * independent of the number of prefixes.
+ */
+public class PackageTrie {
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private Node root = new Node();
+
+    public PackageTrie(String... prefixes) {
+        for (String prefix : prefixes) {
+            add(prefix);
+        }
+    }
+
+    /**
+     * Returns true if the name starts with one of the trie prefixes.
+     *
+     * @param name the name
+     * @return true if the name starts with one of the trie prefixes
+     */
+    public boolean matches(String name) {
+        Node node = root;
+        if (node.terminal) {
+            return true;
+        }
+        int length = name.length();
+        for (int i = 0; i < length; i++) {
+            node = node.child(name.charAt(i));
+            if (node == null) {
+                return false;
+            }
+            if (node.terminal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(String prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = prefix.charAt(i);
+            Node child = node.child(c);
+            if (child == null) {
+                child = node.add(c);
+            }
+            node = child;
+        }
+        node.terminal = true;
+    }
+
+    private static class Node {
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private boolean terminal;
+
+        private Node child(char c) {
+            // nodes rarely have more than a few children so a linear scan is faster than a binary search
+            char[] keys = this.keys;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private Node add(char c) {
+            int length = keys.length;
+            keys = Arrays.copyOf(keys, length + 1);
+            children = Arrays.copyOf(children, length + 1);
+            Node child = new Node();
+            keys[length] = c;
+            children[length] = child;
+            return child;
+        }
+    }
+}
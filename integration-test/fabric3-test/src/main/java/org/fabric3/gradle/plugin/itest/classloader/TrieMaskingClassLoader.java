@@ -0,0 +1,79 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.classloader;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+
+/**
+ * Masks classes and resources in a set of packages from its parent classloader.
+ *
+ * Equivalent to the host {@code MaskingClassLoader} but matches names against a compiled {@link PackageTrie} instead of scanning the list of masked
+ * packages.
+ */
+public class TrieMaskingClassLoader extends ClassLoader {
+    static {
+        registerAsParallelCapable();
+    }
+
+    private PackageTrie packageMasks;
+    private PackageTrie resourceMasks;
+
+    public TrieMaskingClassLoader(ClassLoader parent, String... packageMasks) {
+        super(parent);
+        String[] resources = new String[packageMasks.length];
+        for (int i = 0; i < packageMasks.length; i++) {
+            resources[i] = packageMasks[i].replace('.', '/');
+        }
+        this.packageMasks = new PackageTrie(packageMasks);
+        this.resourceMasks = new PackageTrie(resources);
+    }
+
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (isMasked(name)) {
+            throw new ClassNotFoundException(name);
+        }
+        return super.loadClass(name, resolve);
+    }
+
+    public URL getResource(String name) {
+        if (resourceMasks.matches(name)) {
+            return null;
+        }
+        return super.getResource(name);
+    }
+
+    public Enumeration<URL> getResources(String name) throws IOException {
+        if (resourceMasks.matches(name)) {
+            return Collections.emptyEnumeration();
+        }
+        return super.getResources(name);
+    }
+
+    /**
+     * Returns true if the class is masked.
+     *
+     * @param name the class name
+     * @return true if the class is masked
+     */
+    public boolean isMasked(String name) {
+        return packageMasks.matches(name);
+    }
+
+}
@@ -17,13 +17,18 @@
 package org.fabric3.gradle.plugin.itest.config;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.aether.repository.RepositoryPolicy;
+import org.fabric3.gradle.plugin.itest.runtime.LeakDetection;
+import org.fabric3.gradle.plugin.itest.runtime.OverflowPolicy;
 import org.gradle.api.Project;
 
 /**
@@ -40,6 +45,37 @@ public class TestPluginConvention {
     private String compositeName = "TestComposite";
     private String errorText;
     private boolean report;
+    private boolean streamingReport;
+    private boolean resultStore;
+    private boolean cacheContributions;
+    private File cacheDirectory;
+    private int cacheMaxAge = 30;
+    private long shutdownTimeout = 60;
+    private boolean shareRuntime;
+    private boolean pipelinedBoot;
+    private boolean durationHistory;
+    private File historyFile;
+    private double regressionThreshold = 0.5;
+    private boolean failOnRegression;
+    private boolean captureOutput;
+    private boolean captureSuccessfulOutput;
+    private int outputLimit = 64 * 1024;
+    private int reportThreads = 1;
+    private boolean compressReport;
+    private boolean htmlReport;
+    private File traceFile;
+    private boolean measureResources;
+    private boolean metrics;
+    private File metricsDirectory;
+    private int monitorBufferSize;
+    private OverflowPolicy monitorOverflowPolicy = OverflowPolicy.BLOCK;
+    private int monitorRateLimit;
+    private boolean monitorStatistics;
+    private LeakDetection leakDetection = LeakDetection.OFF;
+    private boolean measureOverhead;
+    private long profileThreshold;
+    private long profileInterval = 10;
+    private File profileDirectory;
 
     private String updatePolicy = RepositoryPolicy.UPDATE_POLICY_DAILY;  // the Maven repository update policy
     private boolean remoteRepositoryEnabled = true;
@@ -55,6 +91,7 @@ public class TestPluginConvention {
     private Set<File> fileContributions = new HashSet<>();
 
     private Set<Artifact> contributions = new HashSet<>();
+    private Map<String, Set<String>> mbeanAttributes = new LinkedHashMap<>();
 
     public String getRuntimeVersion() {
         return runtimeVersion;
@@ -96,6 +133,420 @@ public class TestPluginConvention {
         this.report = report;
     }
 
+    public boolean isStreamingReport() {
+        return streamingReport;
+    }
+
+    /**
+     * Sets whether a JUnit report file is written for each test suite as soon as it completes instead of a single report at the end of the run.
+     *
+     * @param streamingReport true if suite reports are streamed
+     */
+    public void setStreamingReport(boolean streamingReport) {
+        this.streamingReport = streamingReport;
+    }
+
+    public boolean isResultStore() {
+        return resultStore;
+    }
+
+    /**
+     * Sets whether test results are written to a binary log in the build directory instead of being held in memory for the duration of the run. Reports
+     * and the console summary are generated from the log, and the <code>fabric3Report</code> task regenerates reports from it without re-running tests.
+     *
+     * @param resultStore true if results are written to a binary log
+     */
+    public void setResultStore(boolean resultStore) {
+        this.resultStore = resultStore;
+    }
+
+    public boolean isCacheContributions() {
+        return cacheContributions;
+    }
+
+    /**
+     * Sets whether contribution archives are extracted to a checksum-keyed cache that is shared between runs and projects.
+     *
+     * @param cacheContributions true if contribution archives are cached
+     */
+    public void setCacheContributions(boolean cacheContributions) {
+        this.cacheContributions = cacheContributions;
+    }
+
+    public File getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    /**
+     * Sets the contribution cache directory. If not set, the cache is placed in the Gradle user home directory.
+     *
+     * @param cacheDirectory the cache directory
+     */
+    public void setCacheDirectory(File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    public int getCacheMaxAge() {
+        return cacheMaxAge;
+    }
+
+    /**
+     * Sets the number of days after which cached contributions that have not been used are removed. Defaults to 30; 0 disables removal.
+     *
+     * @param cacheMaxAge the maximum age in days
+     */
+    public void setCacheMaxAge(int cacheMaxAge) {
+        this.cacheMaxAge = cacheMaxAge;
+    }
+
+    public long getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    /**
+     * Sets the maximum time in seconds to wait for the runtime to shut down after test results have been reported.
+     *
+     * @param shutdownTimeout the timeout in seconds
+     */
+    public void setShutdownTimeout(long shutdownTimeout) {
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    public boolean isShareRuntime() {
+        return shareRuntime;
+    }
+
+    /**
+     * Sets whether the runtime is shared with other test tasks in the build that have an identical runtime configuration. A shared runtime is booted
+     * once and the contributions and test composite of each task are undeployed when its tests complete.
+     *
+     * @param shareRuntime true if the runtime is shared
+     */
+    public void setShareRuntime(boolean shareRuntime) {
+        this.shareRuntime = shareRuntime;
+    }
+
+    public boolean isPipelinedBoot() {
+        return pipelinedBoot;
+    }
+
+    /**
+     * Sets whether runtime extensions are resolved concurrently with the runtime artifacts, project dependencies and runtime classloaders. The runtime
+     * boots once resolution completes.
+     *
+     * @param pipelinedBoot true if boot resolution is pipelined
+     */
+    public void setPipelinedBoot(boolean pipelinedBoot) {
+        this.pipelinedBoot = pipelinedBoot;
+    }
+
+    public boolean isDurationHistory() {
+        return durationHistory;
+    }
+
+    /**
+     * Sets whether test and suite durations are recorded in a history file and compared against the durations of previous runs.
+     *
+     * @param durationHistory true if durations are recorded
+     */
+    public void setDurationHistory(boolean durationHistory) {
+        this.durationHistory = durationHistory;
+    }
+
+    public File getHistoryFile() {
+        return historyFile;
+    }
+
+    /**
+     * Sets the duration history file. If not set, the history is kept in <code>.fabric3/test-durations</code> in the project directory.
+     *
+     * @param historyFile the history file
+     */
+    public void setHistoryFile(File historyFile) {
+        this.historyFile = historyFile;
+    }
+
+    public double getRegressionThreshold() {
+        return regressionThreshold;
+    }
+
+    /**
+     * Sets the fraction by which a duration may exceed the 95th percentile of previous runs before it is reported as a regression. The default is 0.5.
+     *
+     * @param regressionThreshold the threshold
+     */
+    public void setRegressionThreshold(double regressionThreshold) {
+        this.regressionThreshold = regressionThreshold;
+    }
+
+    public boolean isFailOnRegression() {
+        return failOnRegression;
+    }
+
+    /**
+     * Sets whether the build fails when a duration regression is detected.
+     *
+     * @param failOnRegression true if regressions fail the build
+     */
+    public void setFailOnRegression(boolean failOnRegression) {
+        this.failOnRegression = failOnRegression;
+    }
+
+    public boolean isCaptureOutput() {
+        return captureOutput;
+    }
+
+    /**
+     * Sets whether standard output, standard error and runtime monitor output are captured per test and included in JUnit reports instead of being
+     * written to the console.
+     *
+     * @param captureOutput true if output is captured
+     */
+    public void setCaptureOutput(boolean captureOutput) {
+        this.captureOutput = captureOutput;
+    }
+
+    public boolean isCaptureSuccessfulOutput() {
+        return captureSuccessfulOutput;
+    }
+
+    /**
+     * Sets whether captured output is kept for successful tests. By default, it is only kept for failed tests.
+     *
+     * @param captureSuccessfulOutput true if output is kept for successful tests
+     */
+    public void setCaptureSuccessfulOutput(boolean captureSuccessfulOutput) {
+        this.captureSuccessfulOutput = captureSuccessfulOutput;
+    }
+
+    public int getOutputLimit() {
+        return outputLimit;
+    }
+
+    /**
+     * Sets the maximum number of bytes of each output stream kept per test. Earlier output is discarded.
+     *
+     * @param outputLimit the limit in bytes
+     */
+    public void setOutputLimit(int outputLimit) {
+        this.outputLimit = outputLimit;
+    }
+
+    public int getReportThreads() {
+        return reportThreads;
+    }
+
+    /**
+     * Sets the number of threads used to render test suites when writing the aggregate JUnit report.
+     *
+     * @param reportThreads the number of threads
+     */
+    public void setReportThreads(int reportThreads) {
+        this.reportThreads = reportThreads;
+    }
+
+    public boolean isCompressReport() {
+        return compressReport;
+    }
+
+    /**
+     * Sets whether the aggregate JUnit report is gzip compressed and written to <code>tests.xml.gz</code>. When reports are streamed, each suite report is
+     * compressed instead.
+     *
+     * @param compressReport true if the report is compressed
+     */
+    public void setCompressReport(boolean compressReport) {
+        this.compressReport = compressReport;
+    }
+
+    public boolean isHtmlReport() {
+        return htmlReport;
+    }
+
+    /**
+     * Sets whether an HTML summary is written to <code>index.html</code> alongside the aggregate or streamed JUnit reports.
+     *
+     * @param htmlReport true if an HTML summary is written
+     */
+    public void setHtmlReport(boolean htmlReport) {
+        this.htmlReport = htmlReport;
+    }
+
+    public File getTraceFile() {
+        return traceFile;
+    }
+
+    /**
+     * Sets the file a trace of the test run is written to. The trace contains spans for resolution, boot, deployment, each test set and each test in the
+     * trace event format used by Chrome's trace viewer and Perfetto.
+     *
+     * @param traceFile the trace file
+     */
+    public void setTraceFile(File traceFile) {
+        this.traceFile = traceFile;
+    }
+
+    public boolean isMeasureResources() {
+        return measureResources;
+    }
+
+    /**
+     * Sets whether the CPU time, allocated bytes and garbage collections of each test are measured and included in reports. Disabled by default.
+     *
+     * @param measureResources true if resources are measured
+     */
+    public void setMeasureResources(boolean measureResources) {
+        this.measureResources = measureResources;
+    }
+
+    public boolean isMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets whether metrics for the run are written to <code>metrics.json</code> and, in the OpenMetrics text format, <code>metrics.txt</code> when the
+     * task completes. Metrics include phase durations, test counts, resolution statistics, and heap and thread high-water marks.
+     *
+     * @param metrics true if metrics are written
+     */
+    public void setMetrics(boolean metrics) {
+        this.metrics = metrics;
+    }
+
+    public File getMetricsDirectory() {
+        return metricsDirectory;
+    }
+
+    /**
+     * Sets the directory metrics are written to. Defaults to the integration test reports directory.
+     *
+     * @param metricsDirectory the directory
+     */
+    public void setMetricsDirectory(File metricsDirectory) {
+        this.metricsDirectory = metricsDirectory;
+    }
+
+    public int getMonitorBufferSize() {
+        return monitorBufferSize;
+    }
+
+    /**
+     * Sets the number of monitor events buffered for logging on a separate thread. Defaults to 0, which logs events synchronously on the thread raising
+     * them.
+     *
+     * @param monitorBufferSize the buffer size
+     */
+    public void setMonitorBufferSize(int monitorBufferSize) {
+        this.monitorBufferSize = monitorBufferSize;
+    }
+
+    public OverflowPolicy getMonitorOverflowPolicy() {
+        return monitorOverflowPolicy;
+    }
+
+    /**
+     * Sets whether a thread raising a monitor event waits or the event is dropped when the monitor buffer is full. Defaults to waiting.
+     *
+     * @param monitorOverflowPolicy the policy
+     */
+    public void setMonitorOverflowPolicy(OverflowPolicy monitorOverflowPolicy) {
+        this.monitorOverflowPolicy = monitorOverflowPolicy;
+    }
+
+    public int getMonitorRateLimit() {
+        return monitorRateLimit;
+    }
+
+    /**
+     * Sets the number of monitor events logged per second for each source and message. Further events are counted and summarized. Defaults to 0, which
+     * does not limit events.
+     *
+     * @param monitorRateLimit the number of events per second
+     */
+    public void setMonitorRateLimit(int monitorRateLimit) {
+        this.monitorRateLimit = monitorRateLimit;
+    }
+
+    public boolean isMonitorStatistics() {
+        return monitorStatistics;
+    }
+
+    /**
+     * Sets whether monitor events are counted by source and level and a table of the counts is logged at the end of the run.
+     *
+     * @param monitorStatistics true if events are counted
+     */
+    public void setMonitorStatistics(boolean monitorStatistics) {
+        this.monitorStatistics = monitorStatistics;
+    }
+
+    public LeakDetection getLeakDetection() {
+        return leakDetection;
+    }
+
+    /**
+     * Sets whether the task checks that the runtime released its classloaders and threads after shutting down, and whether leaks are logged or fail the
+     * task. Defaults to no check.
+     *
+     * @param leakDetection the leak detection mode
+     */
+    public void setLeakDetection(LeakDetection leakDetection) {
+        this.leakDetection = leakDetection;
+    }
+
+    public boolean isMeasureOverhead() {
+        return measureOverhead;
+    }
+
+    /**
+     * Sets whether the time spent in each test method is reported separately from the time spent in Fabric3 interceptors in front of it. Disabled by
+     * default because a timing interceptor is added to each test invocation chain.
+     *
+     * @param measureOverhead true if the times are reported separately
+     */
+    public void setMeasureOverhead(boolean measureOverhead) {
+        this.measureOverhead = measureOverhead;
+    }
+
+    public long getProfileThreshold() {
+        return profileThreshold;
+    }
+
+    /**
+     * Sets the elapsed time above which a collapsed-stack profile of a test is written. If 0, the default, tests are not profiled.
+     *
+     * @param profileThreshold the threshold in milliseconds
+     */
+    public void setProfileThreshold(long profileThreshold) {
+        this.profileThreshold = profileThreshold;
+    }
+
+    public long getProfileInterval() {
+        return profileInterval;
+    }
+
+    /**
+     * Sets the interval between stack samples of a profiled test. Defaults to 10 milliseconds.
+     *
+     * @param profileInterval the interval in milliseconds
+     */
+    public void setProfileInterval(long profileInterval) {
+        this.profileInterval = profileInterval;
+    }
+
+    public File getProfileDirectory() {
+        return profileDirectory;
+    }
+
+    /**
+     * Sets the directory profiles are written to. Defaults to the profiles directory under the integration test reports directory.
+     *
+     * @param profileDirectory the directory
+     */
+    public void setProfileDirectory(File profileDirectory) {
+        this.profileDirectory = profileDirectory;
+    }
+
     public void extension(Map<String, String> extension) {
         extensions.add(convert(extension, "jar"));
     }
@@ -148,6 +599,26 @@ public class TestPluginConvention {
         fileContributions.add(file);
     }
 
+    /**
+     * Adds MBean attributes that are read before and after each test class runs. The changes are added to the suite results as properties. For example,
+     * <code>mbeanAttribute 'java.lang:type=Threading', 'ThreadCount'</code>.
+     *
+     * @param objectName the MBean object name, which may be a pattern
+     * @param attributes the attribute names
+     */
+    public void mbeanAttribute(String objectName, String... attributes) {
+        Set<String> names = mbeanAttributes.get(objectName);
+        if (names == null) {
+            names = new LinkedHashSet<>();
+            mbeanAttributes.put(objectName, names);
+        }
+        names.addAll(Arrays.asList(attributes));
+    }
+
+    public Map<String, Set<String>> getMBeanAttributes() {
+        return mbeanAttributes;
+    }
+
     public Set<Artifact> getContributions() {
         return contributions;
     }
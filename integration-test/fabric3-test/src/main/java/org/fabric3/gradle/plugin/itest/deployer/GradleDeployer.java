@@ -17,7 +17,16 @@
 package org.fabric3.gradle.plugin.itest.deployer;
 
 import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
+import org.fabric3.api.host.Fabric3Exception;
+import org.fabric3.api.host.Names;
+import org.fabric3.api.host.contribution.ContributionService;
+import org.fabric3.api.host.domain.Domain;
+import org.fabric3.plugin.api.runtime.PluginRuntime;
 import org.fabric3.plugin.deployer.AbstractDeployer;
 import org.gradle.api.logging.Logger;
 
@@ -32,6 +41,34 @@ public class GradleDeployer extends AbstractDeployer {
         this.logger = logger;
     }
 
+    /**
+     * Undeploys and removes all contributions installed in the runtime since the given snapshot was taken, returning the runtime to that state.
+     *
+     * @param runtime  the runtime
+     * @param snapshot the contributions installed before deployment
+     * @return true if the contributions were removed
+     */
+    public boolean undeploy(PluginRuntime runtime, Set<URI> snapshot) {
+        ContributionService contributionService = runtime.getComponent(ContributionService.class, Names.CONTRIBUTION_SERVICE_URI);
+        Domain domain = runtime.getComponent(Domain.class, Names.APPLICATION_DOMAIN_URI);
+        List<URI> uris = new ArrayList<>(contributionService.getContributions());
+        uris.removeAll(snapshot);
+        if (uris.isEmpty()) {
+            return true;
+        }
+        try {
+            for (URI uri : uris) {
+                domain.undeploy(uri);
+            }
+            contributionService.uninstall(uris);
+            contributionService.remove(uris);
+            return true;
+        } catch (Fabric3Exception e) {
+            logger.warn("Error undeploying contributions: " + e.getMessage());
+            return false;
+        }
+    }
+
     protected void logError(String message) {
         logger.error(message);
     }
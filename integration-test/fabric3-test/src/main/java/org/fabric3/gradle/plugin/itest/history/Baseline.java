@@ -0,0 +1,57 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.history;
+
+import java.util.Arrays;
+
+/**
+ * The median and 95th percentile of previously recorded durations.
+ */
+public class Baseline {
+    private long median;
+    private long p95;
+
+    public Baseline(long median, long p95) {
+        this.median = median;
+        this.p95 = p95;
+    }
+
+    /**
+     * Calculates a baseline from a set of samples using the nearest-rank method.
+     *
+     * @param samples the samples in milliseconds
+     * @return the baseline
+     */
+    public static Baseline calculate(long[] samples) {
+        long[] sorted = Arrays.copyOf(samples, samples.length);
+        Arrays.sort(sorted);
+        return new Baseline(percentile(sorted, 50), percentile(sorted, 95));
+    }
+
+    public long getMedian() {
+        return median;
+    }
+
+    public long getP95() {
+        return p95;
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(rank - 1, 0)];
+    }
+}
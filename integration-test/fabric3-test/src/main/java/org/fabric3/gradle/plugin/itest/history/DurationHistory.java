@@ -0,0 +1,150 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.history;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A rolling window of recorded durations per test and suite, persisted to a text file.
+ *
+ * Each line of the file contains a key followed by the most recent durations in milliseconds, oldest first. Test keys have the form
+ * <code>class#method</code> and suite keys are the test class name.
+ */
+public class DurationHistory {
+    private static final int WINDOW = 20;
+    private static final int MINIMUM_SAMPLES = 5;
+
+    private File file;
+    private Map<String, long[]> samples = new TreeMap<>();
+
+    private DurationHistory(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the history from a file. An empty history is returned if the file does not exist.
+     *
+     * @param file the history file
+     * @return the history
+     * @throws IOException if the file cannot be read
+     */
+    public static DurationHistory load(File file) throws IOException {
+        DurationHistory history = new DurationHistory(file);
+        if (!file.exists()) {
+            return history;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] tokens = line.trim().split(" ");
+                if (tokens.length < 2) {
+                    continue;
+                }
+                long[] values = new long[tokens.length - 1];
+                try {
+                    for (int i = 1; i < tokens.length; i++) {
+                        values[i - 1] = Long.parseLong(tokens[i]);
+                    }
+                } catch (NumberFormatException e) {
+                    // skip corrupt entries
+                    continue;
+                }
+                history.samples.put(tokens[0], values);
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Returns the baseline for a key or null if not enough durations have been recorded.
+     *
+     * @param key the test or suite key
+     * @return the baseline or null
+     */
+    public synchronized Baseline getBaseline(String key) {
+        long[] values = samples.get(key);
+        if (values == null || values.length < MINIMUM_SAMPLES) {
+            return null;
+        }
+        return Baseline.calculate(values);
+    }
+
+    /**
+     * Records a duration, discarding the oldest duration if the window is full.
+     *
+     * @param key         the test or suite key
+     * @param elapsedTime the duration in milliseconds
+     */
+    public synchronized void add(String key, long elapsedTime) {
+        long[] values = samples.get(key);
+        if (values == null) {
+            values = new long[]{elapsedTime};
+        } else if (values.length < WINDOW) {
+            values = Arrays.copyOf(values, values.length + 1);
+            values[values.length - 1] = elapsedTime;
+        } else {
+            long[] shifted = new long[WINDOW];
+            System.arraycopy(values, values.length - WINDOW + 1, shifted, 0, WINDOW - 1);
+            shifted[WINDOW - 1] = elapsedTime;
+            values = shifted;
+        }
+        samples.put(key, values);
+    }
+
+    /**
+     * Writes the history to its file, replacing the previous contents atomically.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void save() throws IOException {
+        Path target = file.toPath();
+        Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getName(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, long[]> entry : samples.entrySet()) {
+                    writer.write(entry.getKey());
+                    for (long value : entry.getValue()) {
+                        writer.write(' ');
+                        writer.write(Long.toString(value));
+                    }
+                    writer.newLine();
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.history;
+
+/**
+ * A test or suite that took longer than its baseline allows.
+ */
+public class Regression {
+    private String name;
+    private long elapsedTime;
+    private Baseline baseline;
+
+    public Regression(String name, long elapsedTime, Baseline baseline) {
+        this.name = name;
+        this.elapsedTime = elapsedTime;
+        this.baseline = baseline;
+    }
+
+    /**
+     * Returns the test name in the form <code>class#method</code> or the class name for a suite.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    public Baseline getBaseline() {
+        return baseline;
+    }
+
+    /**
+     * Returns a description of the elapsed time and baseline without the name.
+     *
+     * @return the description
+     */
+    public String getDescription() {
+        return elapsedTime + " ms (median " + baseline.getMedian() + " ms, p95 " + baseline.getP95() + " ms)";
+    }
+
+    public String toString() {
+        return name + " took " + getDescription();
+    }
+}
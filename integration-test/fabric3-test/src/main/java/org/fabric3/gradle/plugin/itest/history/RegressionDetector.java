@@ -0,0 +1,96 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.history;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.fabric3.gradle.plugin.api.test.TestListenerAdapter;
+import org.fabric3.gradle.plugin.api.test.TestResult;
+import org.fabric3.gradle.plugin.api.test.TestSuiteResult;
+
+/**
+ * Compares the durations of successful tests and suites against their baselines as suites complete and records the durations in the history.
+ *
+ * Regressions are added to the suite result as properties so they appear in JUnit reports. This listener must be registered before report writers and the
+ * result log so the properties are set before the suite is written.
+ */
+public class RegressionDetector extends TestListenerAdapter {
+    public static final String PROPERTY_PREFIX = "fabric3.regression";
+
+    // differences below this are treated as noise regardless of the threshold
+    private static final long MINIMUM_DIFFERENCE = 10;
+
+    private DurationHistory history;
+    private double threshold;
+    private List<Regression> regressions = new ArrayList<>();
+
+    /**
+     * Constructor.
+     *
+     * @param history   the duration history
+     * @param threshold the fraction a duration may exceed the p95 baseline by before it is considered a regression
+     */
+    public RegressionDetector(DurationHistory history, double threshold) {
+        this.history = history;
+        this.threshold = threshold;
+    }
+
+    public synchronized void suiteFinished(TestSuiteResult result) {
+        String className = result.getTestClassName();
+        for (TestResult test : result.getTestResults()) {
+            if (TestResult.Type.SUCCESS != test.getType()) {
+                continue;
+            }
+            String key = className + "#" + test.getTestMethodName();
+            Regression regression = check(key, test.getElapsedTime());
+            if (regression != null) {
+                result.setProperty(PROPERTY_PREFIX + "." + test.getTestMethodName(), regression.getDescription());
+            }
+        }
+        if (result.getFailedTests() == 0) {
+            Regression regression = check(className, result.getElapsedTime());
+            if (regression != null) {
+                result.setProperty(PROPERTY_PREFIX, regression.getDescription());
+            }
+        }
+    }
+
+    /**
+     * Returns the regressions detected during the run.
+     *
+     * @return the regressions
+     */
+    public synchronized List<Regression> getRegressions() {
+        return new ArrayList<>(regressions);
+    }
+
+    private Regression check(String key, long elapsedTime) {
+        Baseline baseline = history.getBaseline(key);
+        history.add(key, elapsedTime);
+        if (baseline == null) {
+            return null;
+        }
+        long limit = (long) (baseline.getP95() * (1 + threshold));
+        if (elapsedTime <= limit || elapsedTime - baseline.getP95() < MINIMUM_DIFFERENCE) {
+            return null;
+        }
+        Regression regression = new Regression(key, elapsedTime, baseline);
+        regressions.add(regression);
+        return regression;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.impl;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.fabric3.gradle.plugin.itest.config.TestPluginConvention;
+import org.fabric3.gradle.plugin.itest.report.JUnitReportWriterImpl;
+import org.fabric3.gradle.plugin.itest.report.ParallelReportWriter;
+import org.fabric3.gradle.plugin.itest.store.ResultLogReader;
+import org.fabric3.plugin.Fabric3PluginException;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.Project;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Regenerates integration test reports from the result log of the last test run without re-running the tests. The log is only written when the
+ * result store is enabled.
+ */
+public class Fabric3ReportTask extends DefaultTask {
+
+    @TaskAction
+    public void fabric3Report() throws Fabric3PluginException {
+        Project project = getProject();
+        TestPluginConvention convention = (TestPluginConvention) project.getConvention().getByName(TestPluginConvention.FABRIC3_TEST_CONVENTION);
+        File directory = Fabric3TestTask.getResultLogDirectory(project);
+        ResultLogReader reader;
+        try {
+            reader = new ResultLogReader(directory);
+        } catch (IOException e) {
+            throw new Fabric3PluginException("Error reading result log in " + directory + ". Run fabric3Test with resultStore enabled first.", e);
+        }
+        ParallelReportWriter writer = new ParallelReportWriter(new JUnitReportWriterImpl(), convention.getReportThreads());
+        File reportsDirectory = Fabric3TestTask.getReportsDirectory(project);
+        try {
+            writer.write(reader, reportsDirectory, convention.isCompressReport(), convention.isHtmlReport());
+        } finally {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                getLogger().warn("Error closing result log", e);
+            }
+        }
+        getLogger().lifecycle("Wrote reports for " + reader.getSuccessfulTests() + " successful and " + reader.getFailedTests() + " failed tests to "
+                              + reportsDirectory);
+    }
+}
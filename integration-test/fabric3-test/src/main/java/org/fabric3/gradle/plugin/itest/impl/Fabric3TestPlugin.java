@@ -29,6 +29,7 @@ public class Fabric3TestPlugin implements Plugin<Project> {
     public void apply(Project project) {
         GradleVersionCheck.checkGradleVersion(project, "3.3", "fabric3-assembly");
         project.getTasks().create("fabric3Test", Fabric3TestTask.class);
+        project.getTasks().create("fabric3Report", Fabric3ReportTask.class);
         project.getConvention().add(TestPluginConvention.FABRIC3_TEST_CONVENTION, TestPluginConvention.class);
     }
 }
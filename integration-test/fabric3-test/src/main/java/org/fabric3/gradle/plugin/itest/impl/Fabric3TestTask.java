@@ -17,10 +17,11 @@
 package org.fabric3.gradle.plugin.itest.impl;
 
 import javax.inject.Inject;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
@@ -30,8 +31,13 @@ import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.aether.RepositorySystem;
@@ -45,7 +51,6 @@ import org.eclipse.aether.resolution.DependencyResolutionException;
 import org.fabric3.api.host.Fabric3Exception;
 import org.fabric3.api.host.Names;
 import org.fabric3.api.host.classloader.DelegatingResourceClassLoader;
-import org.fabric3.api.host.classloader.MaskingClassLoader;
 import org.fabric3.api.host.contribution.ContributionService;
 import org.fabric3.api.host.contribution.ContributionSource;
 import org.fabric3.api.host.contribution.FileContributionSource;
@@ -53,21 +58,48 @@ import org.fabric3.api.host.domain.Domain;
 import org.fabric3.api.host.monitor.DestinationRouter;
 import org.fabric3.api.host.runtime.HiddenPackages;
 import org.fabric3.api.host.util.IOHelper;
+import org.fabric3.gradle.plugin.api.jfr.FlightEvent;
+import org.fabric3.gradle.plugin.api.jfr.FlightEvents;
 import org.fabric3.gradle.plugin.api.test.IntegrationTests;
 import org.fabric3.gradle.plugin.api.test.IntegrationTestsFactory;
+import org.fabric3.gradle.plugin.api.test.TestListenerException;
+import org.fabric3.gradle.plugin.api.test.TestOptions;
 import org.fabric3.gradle.plugin.api.test.TestRecorder;
-import org.fabric3.gradle.plugin.api.test.TestResult;
 import org.fabric3.gradle.plugin.api.test.TestSuiteResult;
+import org.fabric3.gradle.plugin.itest.cache.ContributionCache;
+import org.fabric3.gradle.plugin.itest.cache.Directories;
+import org.fabric3.gradle.plugin.itest.classloader.TrieMaskingClassLoader;
 import org.fabric3.gradle.plugin.itest.config.TestPluginConvention;
 import org.fabric3.gradle.plugin.itest.deployer.GradleDeployer;
+import org.fabric3.gradle.plugin.itest.history.DurationHistory;
+import org.fabric3.gradle.plugin.itest.history.Regression;
+import org.fabric3.gradle.plugin.itest.history.RegressionDetector;
+import org.fabric3.gradle.plugin.itest.listener.FailureConsoleListener;
+import org.fabric3.gradle.plugin.itest.listener.ProgressTestListener;
+import org.fabric3.gradle.plugin.itest.listener.SpanTestListener;
+import org.fabric3.gradle.plugin.itest.metrics.MetricsWriter;
+import org.fabric3.gradle.plugin.itest.metrics.RunMetrics;
 import org.fabric3.gradle.plugin.itest.report.JUnitReportWriterImpl;
+import org.fabric3.gradle.plugin.itest.report.ParallelReportWriter;
+import org.fabric3.gradle.plugin.itest.report.StreamingReportWriter;
 import org.fabric3.gradle.plugin.itest.resolver.AetherBootstrap;
 import org.fabric3.gradle.plugin.itest.resolver.ProjectDependencies;
+import org.fabric3.gradle.plugin.itest.resolver.ResolutionPipeline;
+import org.fabric3.gradle.plugin.itest.resolver.ResolverFactory;
 import org.fabric3.gradle.plugin.itest.runtime.GradleRuntimeBooter;
+import org.fabric3.gradle.plugin.itest.runtime.AsyncDestinationRouter;
+import org.fabric3.gradle.plugin.itest.runtime.LeakDetection;
+import org.fabric3.gradle.plugin.itest.runtime.LeakDetector;
+import org.fabric3.gradle.plugin.itest.runtime.MonitorStatistics;
 import org.fabric3.gradle.plugin.itest.runtime.PluginDestinationRouter;
+import org.fabric3.gradle.plugin.itest.runtime.PooledRuntime;
+import org.fabric3.gradle.plugin.itest.runtime.RuntimePool;
+import org.fabric3.gradle.plugin.itest.store.ResultLog;
+import org.fabric3.gradle.plugin.itest.store.ResultLogReader;
 import org.fabric3.gradle.plugin.itest.stopwatch.NoOpStopWatch;
+import org.fabric3.gradle.plugin.itest.stopwatch.Span;
 import org.fabric3.gradle.plugin.itest.stopwatch.StopWatch;
-import org.fabric3.gradle.plugin.itest.stopwatch.StreamStopWatch;
+import org.fabric3.gradle.plugin.itest.stopwatch.TraceStopWatch;
 import org.fabric3.plugin.Fabric3PluginException;
 import org.fabric3.plugin.api.runtime.PluginRuntime;
 import org.fabric3.plugin.resolver.Resolver;
@@ -94,21 +126,56 @@ public class Fabric3TestTask extends DefaultTask {
     private StyledTextOutput output;
     private JUnitReportWriterImpl reportWriter;
     private StopWatch stopWatch;
+    private RunMetrics metrics;
+    private MonitorStatistics monitorStatistics;
+    private LeakDetector leakDetector;
 
     @Inject
     public Fabric3TestTask(ProgressLoggerFactory progressLoggerFactory, StyledTextOutputFactory outputFactory) {
         this.progressLoggerFactory = progressLoggerFactory;
         this.output = outputFactory.create("fabric3");
         reportWriter = new JUnitReportWriterImpl();
-        if (Boolean.parseBoolean(System.getProperty("fabric3.performance"))) {
-            stopWatch = new StreamStopWatch("gradle", TimeUnit.MILLISECONDS, System.out);
-        } else {
-            stopWatch = new NoOpStopWatch();
-        }
+        stopWatch = new NoOpStopWatch();
     }
 
     @TaskAction
     public void fabric3Test() throws Fabric3Exception, Fabric3PluginException {
+        TestPluginConvention convention = (TestPluginConvention) getProject().getConvention().getByName(TestPluginConvention.FABRIC3_TEST_CONVENTION);
+        leakDetector = null;
+        Fabric3PluginException failure = null;
+        try {
+            runTests(convention);
+        } catch (Fabric3PluginException e) {
+            failure = e;
+        } finally {
+            if (metrics != null) {
+                // stops sampling if the run failed before the metrics were written
+                metrics.stop();
+            }
+        }
+        if (leakDetector != null) {
+            // checked once the test run has returned so that no references to the runtime remain on its stack
+            LeakDetector detector = leakDetector;
+            leakDetector = null;
+            checkLeaks(detector, convention.getLeakDetection(), failure == null);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void runTests(TestPluginConvention convention) throws Fabric3Exception, Fabric3PluginException {
+        Project project = getProject();
+
+        if (convention.getTraceFile() != null) {
+            stopWatch = new TraceStopWatch(getPath(), convention.getTraceFile(), getLogger());
+        }
+        metrics = new RunMetrics(getPath());
+        if (convention.isMetrics()) {
+            metrics.start();
+        }
+        monitorStatistics = convention.isMonitorStatistics() ? new MonitorStatistics() : null;
+
         stopWatch.start();
 
         ProgressLogger progressLogger = progressLoggerFactory.newOperation("fabric3");
@@ -118,9 +185,6 @@ public class Fabric3TestTask extends DefaultTask {
         progressLogger.started("BOOTING");
         Logger logger = getLogger();
 
-        Project project = getProject();
-
-        TestPluginConvention convention = (TestPluginConvention) project.getConvention().getByName(TestPluginConvention.FABRIC3_TEST_CONVENTION);
         boolean offline = project.getGradle().getStartParameter().isOffline();
 
         RepositorySystem system = AetherBootstrap.getRepositorySystem();
@@ -137,32 +201,57 @@ public class Fabric3TestTask extends DefaultTask {
         List<RemoteRepository> repositories = AetherBootstrap.getRepositories(registry, repoPolicy, snapshotPolicy);
 
         Resolver resolver = new Resolver(system, session, repositories, convention.getRuntimeVersion());
-
-        PluginBootConfiguration configuration = createBootConfiguration(convention, resolver, system, session);
-
-        GradleRuntimeBooter booter = new GradleRuntimeBooter(configuration);
+        ResolverFactory resolverFactory = new ResolverFactory(system, registry, offline, repositories, convention.getRuntimeVersion());
+
+        RuntimePool pool = null;
+        String runtimeKey = null;
+        PooledRuntime pooledRuntime = null;
+        if (convention.isShareRuntime()) {
+            pool = RuntimePool.getPool(project, convention.getShutdownTimeout());
+            runtimeKey = calculateRuntimeKey(convention);
+            pooledRuntime = pool.acquire(runtimeKey);
+        }
 
         stopWatch.split("Gradle setup");
 
-        PluginRuntime runtime = booter.boot();
-
-        stopWatch.split("Fabric3 boot");
-
-        String environment = runtime.getHostInfo().getEnvironment();
-        logger.info("Fabric3 started [Environment: " + environment + "]");
+        if (pooledRuntime == null) {
+            pooledRuntime = boot(convention, resolver, resolverFactory, system, session);
+            stopWatch.split("Fabric3 boot");
+            metrics.set(RunMetrics.RESOLUTION, "runtimeReused", 0);
+        } else {
+            logger.info("Reusing Fabric3 runtime");
+            metrics.set(RunMetrics.RESOLUTION, "runtimeReused", 1);
+            try {
+                bindRuntime(pooledRuntime, convention, resolver);
+            } catch (RuntimeException e) {
+                pool.release(runtimeKey, pooledRuntime);
+                throw e;
+            }
+            pooledRuntime.getRouter().setStatistics(monitorStatistics);
+        }
+        PluginRuntime runtime = pooledRuntime.getRuntime();
 
         progressLogger.progress("BOOTED");
 
         ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
 
         boolean aborted = false;
+        boolean reusable = false;
+        String outcome = "error";
 
         IntegrationTests integrationTests = null;
+        ResultLog resultLog = null;
         try {
-            Thread.currentThread().setContextClassLoader(configuration.getBootClassLoader());
+            Thread.currentThread().setContextClassLoader(pooledRuntime.getBootClassLoader());
+
+            ContributionService contributionService = runtime.getComponent(ContributionService.class, Names.CONTRIBUTION_SERVICE_URI);
+            Set<URI> snapshot = new HashSet<>(contributionService.getContributions());
+
             // load the contributions
 
+            Phase contributionPhase = beginPhase("Deploy contributions");
             deployContributions(runtime, convention, resolver);
+            contributionPhase.end();
 
             stopWatch.split("Fabric3 deploy contributions");
 
@@ -171,8 +260,11 @@ public class Fabric3TestTask extends DefaultTask {
             String name = convention.getCompositeName();
             GradleDeployer deployer = new GradleDeployer(namespace, name, buildDirectory, logger);
             String errorText = convention.getErrorText();
+            Phase compositePhase = beginPhase("Deploy test composite");
             aborted = !deployer.deploy(runtime, errorText);
+            compositePhase.end(aborted ? "aborted" : "completed");
             if (aborted) {
+                outcome = "aborted";
                 return;
             }
 
@@ -180,75 +272,432 @@ public class Fabric3TestTask extends DefaultTask {
 
             progressLogger.progress("Running Fabric3 tests");
             IntegrationTestsFactory integrationTestsFactory = runtime.getComponent(IntegrationTestsFactory.class);
-            integrationTests = integrationTestsFactory.createTests(progressLogger);
-            integrationTests.execute();
+            TestOptions options = new TestOptions();
+            options.setCaptureOutput(convention.isCaptureOutput());
+            options.setCaptureSuccessfulOutput(convention.isCaptureSuccessfulOutput());
+            options.setOutputLimit(convention.getOutputLimit());
+            options.setMeasureResources(convention.isMeasureResources());
+            options.setMeasureOverhead(convention.isMeasureOverhead());
+            if (convention.getProfileThreshold() > 0) {
+                File profileDirectory = convention.getProfileDirectory();
+                options.setProfileDirectory(profileDirectory != null ? profileDirectory : new File(getReportsDirectory(), "profiles"));
+                options.setProfileThreshold(convention.getProfileThreshold());
+                options.setProfileInterval(convention.getProfileInterval());
+            }
+            options.setMBeanAttributes(getMBeanAttributes(convention));
+            integrationTests = integrationTestsFactory.createTests(progressLogger, options);
+            TestRecorder recorder = integrationTests.getRecorder();
+            recorder.addListener(new ProgressTestListener(progressLogger));
+            recorder.addListener(new FailureConsoleListener(output));
+            DurationHistory history = null;
+            RegressionDetector regressionDetector = null;
+            if (convention.isDurationHistory()) {
+                // registered before the report writers and result log so regressions are included in suite results when they are written
+                history = loadHistory(convention);
+                regressionDetector = new RegressionDetector(history, convention.getRegressionThreshold());
+                recorder.addListener(regressionDetector);
+            }
+            if (convention.isResultStore()) {
+                resultLog = createResultLog();
+                recorder.setRetainResults(false);
+                recorder.addListener(resultLog);
+            }
+            StreamingReportWriter streamingWriter = null;
+            if (convention.isReport() && convention.isStreamingReport()) {
+                File reportsDirectory = getReportsDirectory();
+                streamingWriter = new StreamingReportWriter(reportsDirectory, reportWriter, convention.isCompressReport(), convention.isHtmlReport());
+                // suites are written as they complete and only the counts are needed afterwards
+                recorder.setRetainResults(false);
+                recorder.addListener(streamingWriter);
+            }
+            if (convention.getTraceFile() != null) {
+                recorder.addListener(new SpanTestListener(stopWatch));
+            }
+            Phase testPhase = beginPhase("Run tests");
+            try {
+                integrationTests.execute();
+            } catch (TestListenerException e) {
+                throw new Fabric3PluginException("Error recording test results", e.getCause());
+            }
+            outcome = recorder.hasFailures() ? "failed" : "passed";
+            testPhase.end(outcome);
+            metrics.set(RunMetrics.TESTS, "successful", recorder.getSuccessfulTests());
+            metrics.set(RunMetrics.TESTS, "failed", recorder.getFailedTests());
 
             stopWatch.split("Fabric3 run tests");
 
+            if (history != null) {
+                saveHistory(history);
+            }
+
             tryLatch(runtime);
 
-            stopWatch.stop();
+            if (pool != null) {
+                Phase undeployPhase = beginPhase("Undeploy");
+                reusable = deployer.undeploy(runtime, snapshot);
+                undeployPhase.end();
+                stopWatch.split("Fabric3 undeploy");
+            }
 
-            stopWatch.flush();
+            // report before shutting down so a slow runtime shutdown does not delay the results
+            processResults(integrationTests, progressLogger, convention, streamingWriter, resultLog);
+
+            if (regressionDetector != null) {
+                checkRegressions(regressionDetector, convention.isFailOnRegression());
+            }
         } finally {
-            try {
-                booter.shutdown();
-                Thread.currentThread().setContextClassLoader(oldClassLoader);
-            } catch (Exception e) {
-                // ignore
+            Thread.currentThread().setContextClassLoader(oldClassLoader);
+            // flushed on every path so that aborted and failed runs are also traced
+            stopWatch.stop();
+            stopWatch.flush();
+            if (resultLog != null) {
+                // already closed when results were processed; closed here if the run failed before then so the log files are not left open
+                closeResultLog(resultLog);
+            }
+            if (convention.isMetrics()) {
+                // written before the runtime is shut down so heap and thread usage reflect the test run
+                writeMetrics(convention, outcome);
+            }
+            PluginDestinationRouter router = pooledRuntime.getRouter();
+            if (reusable) {
+                router.flushSuppressed();
+                router.setStatistics(null);
+                pool.release(runtimeKey, pooledRuntime);
+            } else {
+                if (pooledRuntime.shutdown(convention.getShutdownTimeout(), logger)) {
+                    leakDetector = pooledRuntime.getLeakDetector();
+                }
+                router.setStatistics(null);
+            }
+            if (monitorStatistics != null) {
+                monitorStatistics.log(logger);
             }
         }
         if (aborted) {
             progressLogger.completed("ABORTED");
             throw new Fabric3PluginException("Integration tests were aborted.");
+        }
+    }
+
+    /**
+     * Resolves the runtime configuration and boots a runtime.
+     *
+     * @return the booted runtime
+     */
+    private PooledRuntime boot(TestPluginConvention convention,
+                               Resolver resolver,
+                               ResolverFactory resolverFactory,
+                               RepositorySystem system,
+                               RepositorySystemSession session) {
+        LeakDetector detector = null;
+        if (LeakDetection.OFF != convention.getLeakDetection()) {
+            // created before the runtime boots so that threads started by the runtime can be distinguished from existing ones
+            detector = new LeakDetector();
+        }
+        PluginDestinationRouter router = createRouter(convention);
+        File tempDir = null;
+        try {
+            Phase resolvePhase = beginPhase("Resolve runtime");
+            PluginBootConfiguration configuration = createBootConfiguration(convention, resolver, resolverFactory, system, session, router);
+            resolvePhase.end();
+
+            if (detector != null) {
+                detector.track("boot classloader", configuration.getBootClassLoader());
+                detector.track("host classloader", configuration.getHostClassLoader());
+            }
+
+            tempDir = Directories.createScratchDirectory(new File(System.getProperty("java.io.tmpdir"), ".f3"));
+            GradleRuntimeBooter booter = new GradleRuntimeBooter(configuration, tempDir);
+
+            Phase bootPhase = beginPhase("Boot runtime");
+            PluginRuntime runtime = booter.boot();
+            bootPhase.end();
+
+            String environment = runtime.getHostInfo().getEnvironment();
+            getLogger().info("Fabric3 started [Environment: " + environment + "]");
+
+            return new PooledRuntime(booter, runtime, configuration.getBootClassLoader(), tempDir, router, detector);
+        } catch (RuntimeException | Error e) {
+            // the runtime did not start, so it will not be shut down, close the router and remove its scratch directory
+            router.close();
+            if (tempDir != null) {
+                Directories.delete(tempDir);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Binds a pooled runtime to the current project so that its test composite is deployed against the project's build directories and module
+     * dependencies instead of those of the project the runtime was last used by.
+     */
+    private void bindRuntime(PooledRuntime pooledRuntime, TestPluginConvention convention, Resolver resolver) {
+        Project project = getProject();
+        try {
+            Set<Artifact> hostArtifacts = resolver.resolveHostArtifacts(convention.getShared());
+            Set<URL> moduleDependencies = ProjectDependencies.calculateProjectDependencies(project, hostArtifacts, resolver);
+            metrics.set(RunMetrics.RESOLUTION, "moduleDependencies", moduleDependencies.size());
+            pooledRuntime.bind(moduleDependencies, project.getBuildDir(), project.getBuildDir());
+        } catch (DependencyResolutionException e) {
+            throw new GradleException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Checks for classloaders and threads leaked by a runtime that has been shut down.
+     *
+     * @param detector the leak detector for the runtime
+     * @param mode     whether leaks are logged or fail the task
+     * @param fail     false if the task has already failed and leaks must only be logged
+     * @throws Fabric3PluginException if leaks were found and the task is configured to fail
+     */
+    private void checkLeaks(LeakDetector detector, LeakDetection mode, boolean fail) throws Fabric3PluginException {
+        List<String> leaks = detector.verify();
+        if (leaks.isEmpty()) {
+            getLogger().info("No leaks found after the Fabric3 runtime shut down");
+            return;
+        }
+        StringBuilder builder = new StringBuilder("The Fabric3 runtime leaked resources after it shut down:");
+        for (String leak : leaks) {
+            builder.append("\n    ").append(leak);
+        }
+        if (LeakDetection.FAIL == mode) {
+            getLogger().error(builder.toString());
+            if (fail) {
+                throw new Fabric3PluginException("Leaks were found after the Fabric3 runtime shut down.");
+            }
         } else {
-            processResults(integrationTests, progressLogger, convention.isReport());
+            getLogger().warn(builder.toString());
         }
     }
 
-    @SuppressWarnings("ThrowableResultOfMethodCallIgnored")
-    private void processResults(IntegrationTests integrationTests, ProgressLogger progressLogger, boolean report) throws Fabric3PluginException {
-        TestRecorder recorder = integrationTests.getRecorder();
-        if (report) {
-            writeReport(recorder);
+    private PluginDestinationRouter createRouter(TestPluginConvention convention) {
+        PluginDestinationRouter router;
+        if (convention.getMonitorBufferSize() <= 0) {
+            router = new PluginDestinationRouter(getLogger(), convention.getMonitorRateLimit());
+        } else {
+            router = new AsyncDestinationRouter(getLogger(),
+                                                convention.getMonitorRateLimit(),
+                                                convention.getMonitorBufferSize(),
+                                                convention.getMonitorOverflowPolicy());
         }
-        if (recorder.hasFailures()) {
-            for (TestSuiteResult suiteResult : recorder.getResults()) {
-                for (TestResult result : suiteResult.getTestResults()) {
-                    if (result.getType() != TestResult.Type.FAILED) {
-                        continue;
-                    }
-                    output.text("\n" + result.getTestClassName() + " > " + result.getTestMethodName());
-                    output.withStyle(StyledTextOutput.Style.Failure).println(" FAILED");
-                    output.withStyle(StyledTextOutput.Style.Error).println(result.getThrowable());
-                }
+        // events raised while the runtime boots are counted as part of the run
+        router.setStatistics(monitorStatistics);
+        return router;
+    }
+
+    /**
+     * Calculates a fingerprint of the configuration that determines the runtime classpath, extensions and system configuration. Runtimes with the same
+     * fingerprint are interchangeable. Project build directories and module dependencies are bound to the runtime when it is acquired, so they are not
+     * part of the fingerprint.
+     *
+     * @param convention the test convention
+     * @return the fingerprint
+     */
+    private String calculateRuntimeKey(TestPluginConvention convention) {
+        StringBuilder builder = new StringBuilder(convention.getRuntimeVersion());
+        appendArtifacts(builder, "extensions", convention.getExtensions());
+        appendArtifacts(builder, "profiles", convention.getProfiles());
+        appendArtifacts(builder, "shared", convention.getShared());
+        Set<String> sharedProjects = new TreeSet<>();
+        for (Project sharedProject : convention.getSharedProjects()) {
+            sharedProjects.add(sharedProject.getPath());
+        }
+        builder.append("|sharedProjects=").append(sharedProjects);
+        if (convention.getSystemConfig() != null) {
+            builder.append("|systemConfig=").append(convention.getSystemConfig());
+        } else if (convention.getSystemConfigFile() != null) {
+            File file = convention.getSystemConfigFile();
+            builder.append("|systemConfigFile=").append(file.getAbsolutePath()).append('@').append(file.lastModified());
+        }
+        return builder.toString();
+    }
+
+    private void appendArtifacts(StringBuilder builder, String name, Set<Artifact> artifacts) {
+        Set<String> sorted = new TreeSet<>();
+        for (Artifact artifact : artifacts) {
+            sorted.add(artifact.toString());
+        }
+        builder.append('|').append(name).append('=').append(sorted);
+    }
+
+    private void processResults(IntegrationTests integrationTests,
+                                ProgressLogger progressLogger,
+                                TestPluginConvention convention,
+                                StreamingReportWriter streamingWriter,
+                                ResultLog resultLog) throws Fabric3PluginException {
+        Iterable<TestSuiteResult> results;
+        int successfulTests;
+        int failedTests;
+        ResultLogReader reader = null;
+        try {
+            if (resultLog != null) {
+                // results are not retained by the recorder; read them back from the log
+                reader = openResultLog(resultLog);
+                results = reader;
+                successfulTests = reader.getSuccessfulTests();
+                failedTests = reader.getFailedTests();
+            } else {
+                TestRecorder recorder = integrationTests.getRecorder();
+                results = recorder.getResults();
+                successfulTests = recorder.getSuccessfulTests();
+                failedTests = recorder.getFailedTests();
+            }
+            if (streamingWriter != null) {
+                streamingWriter.finish();
+            } else if (convention.isReport()) {
+                writeReport(results, convention);
             }
-            displaySummary(recorder);
+        } finally {
+            if (reader != null) {
+                closeReader(reader);
+            }
+        }
+        if (failedTests > 0) {
+            // failures have already been written to the console as they occurred
+            displaySummary(successfulTests, failedTests);
             progressLogger.completed("FAILED");
             throw new Fabric3PluginException("There were failing integration tests.");
         } else {
-            displaySummary(recorder);
+            displaySummary(successfulTests, failedTests);
             progressLogger.completed();
         }
     }
 
+    /**
+     * Returns the configured MBean attributes, checking that the object names are valid so that mistakes are reported before tests are run.
+     */
+    private Map<String, Set<String>> getMBeanAttributes(TestPluginConvention convention) throws Fabric3PluginException {
+        for (String name : convention.getMBeanAttributes().keySet()) {
+            try {
+                new ObjectName(name);
+            } catch (MalformedObjectNameException e) {
+                throw new Fabric3PluginException("Invalid MBean object name: " + name, e);
+            }
+        }
+        return new LinkedHashMap<>(convention.getMBeanAttributes());
+    }
+
+    private void writeReport(Iterable<TestSuiteResult> results, TestPluginConvention convention) throws Fabric3PluginException {
+        ParallelReportWriter writer = new ParallelReportWriter(reportWriter, convention.getReportThreads());
+        writer.write(results, getReportsDirectory(), convention.isCompressReport(), convention.isHtmlReport());
+    }
+
+    private void writeMetrics(TestPluginConvention convention, String outcome) {
+        metrics.finish(outcome);
+        File directory = convention.getMetricsDirectory();
+        if (directory == null) {
+            directory = getReportsDirectory();
+        }
+        try {
+            new MetricsWriter().write(metrics, directory);
+        } catch (IOException e) {
+            getLogger().warn("Error writing test metrics", e);
+        }
+    }
+
+    private DurationHistory loadHistory(TestPluginConvention convention) throws Fabric3PluginException {
+        File file = convention.getHistoryFile();
+        if (file == null) {
+            file = new File(new File(getProject().getProjectDir(), ".fabric3"), "test-durations");
+        }
+        try {
+            return DurationHistory.load(file);
+        } catch (IOException e) {
+            throw new Fabric3PluginException("Error reading test duration history", e);
+        }
+    }
+
+    private void saveHistory(DurationHistory history) {
+        try {
+            history.save();
+        } catch (IOException e) {
+            getLogger().warn("Error writing test duration history", e);
+        }
+    }
+
+    private void checkRegressions(RegressionDetector regressionDetector, boolean failOnRegression) throws Fabric3PluginException {
+        List<Regression> regressions = regressionDetector.getRegressions();
+        if (regressions.isEmpty()) {
+            return;
+        }
+        Logger logger = getLogger();
+        for (Regression regression : regressions) {
+            logger.warn("Duration regression: " + regression);
+        }
+        if (failOnRegression) {
+            throw new Fabric3PluginException("There were integration test duration regressions.");
+        }
+    }
+
+    private ResultLog createResultLog() throws Fabric3PluginException {
+        try {
+            return new ResultLog(getResultLogDirectory());
+        } catch (IOException e) {
+            throw new Fabric3PluginException("Error creating result log", e);
+        }
+    }
+
+    private ResultLogReader openResultLog(ResultLog resultLog) throws Fabric3PluginException {
+        try {
+            resultLog.close();
+            return resultLog.open();
+        } catch (IOException e) {
+            throw new Fabric3PluginException("Error reading result log", e);
+        }
+    }
+
+    private void closeReader(ResultLogReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            getLogger().warn("Error closing result log", e);
+        }
+    }
+
+    private void closeResultLog(ResultLog resultLog) {
+        try {
+            resultLog.close();
+        } catch (IOException e) {
+            getLogger().warn("Error closing result log", e);
+        }
+    }
+
+    private File getResultLogDirectory() {
+        return getResultLogDirectory(getProject());
+    }
+
+    private File getReportsDirectory() {
+        return getReportsDirectory(getProject());
+    }
+
+    /**
+     * Returns the directory the result log of a project is written to.
+     *
+     * @param project the project
+     * @return the directory
+     */
+    static File getResultLogDirectory(Project project) {
+        File testResults = new File(project.getBuildDir(), "test-results");
+        return new File(testResults, "fabric3");
+    }
+
+    /**
+     * Returns the directory reports for a project are written to, creating it if necessary.
+     *
+     * @param project the project
+     * @return the directory
+     */
     @SuppressWarnings("ResultOfMethodCallIgnored")
-    private void writeReport(TestRecorder recorder) throws Fabric3PluginException {
-        File buildDir = getProject().getBuildDir();
+    static File getReportsDirectory(Project project) {
+        File buildDir = project.getBuildDir();
         File reportsDir = new File(buildDir, "reports");
         File outputDir = new File(reportsDir, "integration-tests");
         outputDir.mkdirs();
-
-        try (FileOutputStream stream = new FileOutputStream(new File(outputDir, "tests.xml"))) {
-            reportWriter.write(recorder, stream);
-        } catch (IOException e) {
-            throw new Fabric3PluginException(e);
-        }
+        return outputDir;
     }
 
-    private void displaySummary(TestRecorder recorder) {
-        int successfulTests = recorder.getSuccessfulTests();
-        int failedTests = recorder.getFailedTests();
+    private void displaySummary(int successfulTests, int failedTests) {
         String test = successfulTests == 1 ? "test" : "tests";
         output.println("\n" + successfulTests + " " + test + " succeeded, " + failedTests + " failed\n");
     }
@@ -283,11 +732,15 @@ public class Fabric3TestTask extends DefaultTask {
         ContributionService contributionService = runtime.getComponent(ContributionService.class, Names.CONTRIBUTION_SERVICE_URI);
         Domain domain = runtime.getComponent(Domain.class, Names.APPLICATION_DOMAIN_URI);
 
+        ContributionCache cache = createContributionCache(convention);
+
         List<ContributionSource> sources = new ArrayList<>();
         if (!contributions.isEmpty()) {
             try {
                 Set<URL> resolved = resolver.resolve(contributions);
-                createSource(sources, resolved);
+                for (URL url : resolved) {
+                    sources.add(createSource(new File(url.getFile()), cache));
+                }
             } catch (ArtifactResolutionException e) {
                 throw new Fabric3PluginException("Error installing contributions", e);
             }
@@ -295,16 +748,15 @@ public class Fabric3TestTask extends DefaultTask {
         Set<File> fileContributions = convention.getFileContributions();
         if (!fileContributions.isEmpty()) {
             for (File file : fileContributions) {
-                URI uri = URI.create(file.getName());
-                try {
-                    ContributionSource source = new FileContributionSource(uri, file.toURI().toURL(), -1, true);
-                    sources.add(source);
-                } catch (MalformedURLException e) {
-                    throw new GradleException(e.getMessage(), e);
-                }
+                sources.add(createSource(file, cache));
             }
         }
 
+        if (cache != null) {
+            metrics.set(RunMetrics.RESOLUTION, "cacheHits", cache.getHits());
+            metrics.set(RunMetrics.RESOLUTION, "cacheMisses", cache.getMisses());
+        }
+
         // deploy the archive and URL-based contributions
         try {
             List<URI> uris = contributionService.store(sources);
@@ -315,6 +767,7 @@ public class Fabric3TestTask extends DefaultTask {
         }
 
         Set<Project> projectContributions = convention.getProjectContributions();
+        metrics.set(RunMetrics.RESOLUTION, "contributions", sources.size() + projectContributions.size());
 
         if (projectContributions.isEmpty()) {
             return;
@@ -336,12 +789,41 @@ public class Fabric3TestTask extends DefaultTask {
 
     }
 
-    private void createSource(List<ContributionSource> sources, Set<URL> resolved) {
-        for (URL url : resolved) {
-            URI uri = URI.create(new File(url.getFile()).getName());
-            ContributionSource source = new FileContributionSource(uri, url, -1, true);
-            sources.add(source);
+    /**
+     * Creates a contribution source for an archive or directory. If caching is enabled, JAR archives are replaced by their extracted contents from the cache.
+     *
+     * @param file  the archive or directory
+     * @param cache the contribution cache or null if caching is disabled
+     * @return the source
+     */
+    private ContributionSource createSource(File file, ContributionCache cache) {
+        URI uri = URI.create(file.getName());
+        try {
+            File location = file;
+            if (cache != null && file.isFile() && file.getName().endsWith(".jar")) {
+                location = cache.extract(file);
+            }
+            return new FileContributionSource(uri, location.toURI().toURL(), -1, true);
+        } catch (IOException e) {
+            throw new GradleException(e.getMessage(), e);
+        }
+    }
+
+    private ContributionCache createContributionCache(TestPluginConvention convention) {
+        if (!convention.isCacheContributions()) {
+            return null;
+        }
+        File cacheDirectory = convention.getCacheDirectory();
+        if (cacheDirectory == null) {
+            File userHome = getProject().getGradle().getGradleUserHomeDir();
+            cacheDirectory = new File(userHome, "caches" + File.separator + "fabric3" + File.separator + "contributions");
         }
+        ContributionCache cache = new ContributionCache(cacheDirectory);
+        if (convention.getCacheMaxAge() > 0) {
+            int evicted = cache.prune(TimeUnit.DAYS.toMillis(convention.getCacheMaxAge()));
+            metrics.set(RunMetrics.RESOLUTION, "cacheEvictions", evicted);
+        }
+        return cache;
     }
 
     /**
@@ -350,27 +832,47 @@ public class Fabric3TestTask extends DefaultTask {
      * @return the boot configuration
      */
     private PluginBootConfiguration createBootConfiguration(TestPluginConvention convention,
-                                                            Resolver resolver,
+                                                            final Resolver resolver,
+                                                            ResolverFactory resolverFactory,
                                                             RepositorySystem system,
-                                                            RepositorySystemSession session) {
+                                                            RepositorySystemSession session,
+                                                            DestinationRouter router) {
 
         Project project = getProject();
 
         configureWeb(convention);
 
+        ResolutionPipeline pipeline = new ResolutionPipeline(convention.isPipelinedBoot(), 2);
         try {
-            Set<Artifact> shared = convention.getShared();
+            final Set<Artifact> shared = convention.getShared();
             Set<Project> sharedProjects = convention.getSharedProjects();
-            Set<Artifact> extensions = convention.getExtensions();
-            Set<Artifact> profiles = convention.getProfiles();
-
-            Set<Artifact> hostArtifacts = resolver.resolveHostArtifacts(shared);
-            Set<Artifact> runtimeArtifacts = resolver.resolveRuntimeArtifacts();
+            final Set<Artifact> extensions = convention.getExtensions();
+            final Set<Artifact> profiles = convention.getProfiles();
 
             Artifact testExtension = new DefaultArtifact(FABRIC3_GRADLE, "test-extension", "jar", convention.getRuntimeVersion());
             extensions.add(testExtension);
 
-            List<ContributionSource> runtimeExtensions = resolver.resolveRuntimeExtensions(extensions, profiles);
+            // steps run in the background resolve with their own sessions; the calling thread keeps using the task resolver
+            final Resolver extensionResolver = convention.isPipelinedBoot() ? resolverFactory.createResolver() : resolver;
+            final Resolver runtimeResolver = convention.isPipelinedBoot() ? resolverFactory.createResolver() : resolver;
+
+            // extensions are only needed when the runtime boots, so resolve them while the runtime classloaders are created
+            Future<List<ContributionSource>> extensionsFuture = pipeline.submit(new Callable<List<ContributionSource>>() {
+                public List<ContributionSource> call() throws Exception {
+                    return extensionResolver.resolveRuntimeExtensions(extensions, profiles);
+                }
+            });
+            Future<Set<Artifact>> runtimeFuture = pipeline.submit(new Callable<Set<Artifact>>() {
+                public Set<Artifact> call() throws Exception {
+                    return runtimeResolver.resolveRuntimeArtifacts();
+                }
+            });
+
+            Set<Artifact> hostArtifacts = pipeline.call(new Callable<Set<Artifact>>() {
+                public Set<Artifact> call() throws Exception {
+                    return resolver.resolveHostArtifacts(shared);
+                }
+            });
 
             Set<URL> moduleDependencies = ProjectDependencies.calculateProjectDependencies(project, hostArtifacts, resolver);
             ClassLoader parentClassLoader = createParentClassLoader();
@@ -378,13 +880,22 @@ public class Fabric3TestTask extends DefaultTask {
             URL[] sharedUrls = getSharedUrls(hostArtifacts, sharedProjects);
 
             ClassLoader hostClassLoader = new DelegatingResourceClassLoader(sharedUrls, parentClassLoader);
-            ClassLoader bootClassLoader = ClassLoaderHelper.createBootClassLoader(hostClassLoader, runtimeArtifacts);
+            ClassLoader bootClassLoader = ClassLoaderHelper.createBootClassLoader(hostClassLoader, pipeline.get(runtimeFuture));
+            if (convention.isPipelinedBoot()) {
+                GradleRuntimeBooter.preload(bootClassLoader);
+            }
+
+            List<ContributionSource> runtimeExtensions = pipeline.get(extensionsFuture);
+
+            metrics.set(RunMetrics.RESOLUTION, "hostArtifacts", hostArtifacts.size());
+            metrics.set(RunMetrics.RESOLUTION, "runtimeArtifacts", pipeline.get(runtimeFuture).size());
+            metrics.set(RunMetrics.RESOLUTION, "extensions", runtimeExtensions.size());
+            metrics.set(RunMetrics.RESOLUTION, "moduleDependencies", moduleDependencies.size());
 
             PluginBootConfiguration configuration = new PluginBootConfiguration();
             configuration.setBootClassLoader(bootClassLoader);
             configuration.setHostClassLoader(hostClassLoader);
 
-            DestinationRouter router = new PluginDestinationRouter(getLogger());
             configuration.setRouter(router);
 
             configuration.setExtensions(runtimeExtensions);
@@ -404,8 +915,10 @@ public class Fabric3TestTask extends DefaultTask {
             configuration.setRepositorySystem(system);
             configuration.setBuildDir(project.getBuildDir());
             return configuration;
-        } catch (DependencyResolutionException | ArtifactResolutionException | IOException e) {
+        } catch (IOException e) {
             throw new GradleException(e.getMessage(), e);
+        } finally {
+            pipeline.close();
         }
     }
 
@@ -447,9 +960,44 @@ public class Fabric3TestTask extends DefaultTask {
         String[] hidden = HiddenPackages.getPackages();
         if (hidden.length > 0) {
             // mask hidden JDK and system classpath packages
-            parentClassLoader = new MaskingClassLoader(parentClassLoader, hidden);
+            parentClassLoader = new TrieMaskingClassLoader(parentClassLoader, hidden);
         }
         return parentClassLoader;
     }
 
+    /**
+     * Begins a phase of the task, which is recorded as a stopwatch span, a Flight Recorder event and a metric.
+     *
+     * @param name the phase name
+     * @return the phase
+     */
+    private Phase beginPhase(String name) {
+        return new Phase(name, stopWatch.begin(name), FlightEvents.PHASE.begin());
+    }
+
+    private class Phase {
+        private String name;
+        private Span span;
+        private FlightEvent event;
+        private long start;
+
+        private Phase(String name, Span span, FlightEvent event) {
+            this.name = name;
+            this.span = span;
+            this.event = event;
+            start = System.nanoTime();
+        }
+
+        public void end() {
+            end("completed");
+        }
+
+        public void end(String outcome) {
+            metrics.phase(name, (System.nanoTime() - start) / 1000000);
+            span.end();
+            if (event != null) {
+                event.commit(getPath(), name, outcome);
+            }
+        }
+    }
 }
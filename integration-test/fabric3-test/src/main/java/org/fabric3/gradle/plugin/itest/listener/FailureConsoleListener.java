@@ -0,0 +1,42 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.listener;
+
+import org.fabric3.gradle.plugin.api.test.TestListenerAdapter;
+import org.fabric3.gradle.plugin.api.test.TestResult;
+import org.gradle.internal.logging.text.StyledTextOutput;
+
+/**
+ * Writes test failures to the console as they occur.
+ */
+public class FailureConsoleListener extends TestListenerAdapter {
+    private StyledTextOutput output;
+
+    public FailureConsoleListener(StyledTextOutput output) {
+        this.output = output;
+    }
+
+    public void testFinished(TestResult result) {
+        if (result.getType() != TestResult.Type.FAILED) {
+            return;
+        }
+        output.text("\n" + result.getTestClassName() + " > " + result.getTestMethodName());
+        output.withStyle(StyledTextOutput.Style.Failure).println(" FAILED");
+        output.withStyle(StyledTextOutput.Style.Error).println(result.getFailure());
+    }
+
+}
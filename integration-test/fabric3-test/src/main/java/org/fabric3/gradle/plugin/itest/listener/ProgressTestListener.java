@@ -0,0 +1,52 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.listener;
+
+import org.fabric3.gradle.plugin.api.test.TestListenerAdapter;
+import org.fabric3.gradle.plugin.api.test.TestResult;
+import org.gradle.internal.logging.progress.ProgressLogger;
+
+/**
+ * Updates the Gradle progress line with the running test and completed test counts.
+ */
+public class ProgressTestListener extends TestListenerAdapter {
+    private ProgressLogger progressLogger;
+    private int completed;
+    private int failed;
+
+    public ProgressTestListener(ProgressLogger progressLogger) {
+        this.progressLogger = progressLogger;
+    }
+
+    public void testStarted(String testClassName, String testMethodName) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(completed).append(completed == 1 ? " test" : " tests").append(" completed");
+        if (failed > 0) {
+            builder.append(", ").append(failed).append(" failed");
+        }
+        builder.append(" > ").append(testClassName).append(" > ").append(testMethodName);
+        progressLogger.progress(builder.toString());
+    }
+
+    public void testFinished(TestResult result) {
+        completed++;
+        if (TestResult.Type.FAILED == result.getType()) {
+            failed++;
+        }
+    }
+
+}
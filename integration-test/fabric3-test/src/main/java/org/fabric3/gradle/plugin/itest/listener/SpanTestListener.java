@@ -0,0 +1,42 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.listener;
+
+import org.fabric3.gradle.plugin.api.test.TestListenerAdapter;
+import org.fabric3.gradle.plugin.api.test.TestResult;
+import org.fabric3.gradle.plugin.api.test.TestSuiteResult;
+import org.fabric3.gradle.plugin.itest.stopwatch.StopWatch;
+
+/**
+ * Records a span for each test set and test on the thread that ran it.
+ */
+public class SpanTestListener extends TestListenerAdapter {
+    private StopWatch stopWatch;
+
+    public SpanTestListener(StopWatch stopWatch) {
+        this.stopWatch = stopWatch;
+    }
+
+    public void suiteFinished(TestSuiteResult result) {
+        String thread = result.getThreadName();
+        stopWatch.record(result.getTestClassName(), "suite", thread, result.getStartTime(), result.getElapsedTime());
+        for (TestResult test : result.getTestResults()) {
+            stopWatch.record(test.getTestMethodName(), "test", thread, test.getStartTime(), test.getElapsedTime());
+        }
+    }
+
+}
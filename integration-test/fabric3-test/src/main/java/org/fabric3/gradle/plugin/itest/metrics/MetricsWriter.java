@@ -0,0 +1,144 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+/**
+ * Writes run metrics as JSON and in the OpenMetrics text format.
+ *
+ * In the OpenMetrics output, phase durations are a single gauge labelled by phase, durations are in seconds, and other values are gauges named after
+ * their section and name, e.g. <code>heap.peakUsedBytes</code> becomes <code>fabric3_test_heap_peak_used_bytes</code>. All samples are labelled with the
+ * task path so metrics from several projects can be combined.
+ */
+public class MetricsWriter {
+    public static final String JSON_FILE = "metrics.json";
+    public static final String OPEN_METRICS_FILE = "metrics.txt";
+
+    private static final String PREFIX = "fabric3_test";
+
+    /**
+     * Writes the metrics files to a directory.
+     *
+     * @param metrics   the metrics
+     * @param directory the directory
+     * @throws IOException if there is an error writing the files
+     */
+    public void write(RunMetrics metrics, File directory) throws IOException {
+        Files.createDirectories(directory.toPath());
+        try (Writer writer = Files.newBufferedWriter(new File(directory, JSON_FILE).toPath(), StandardCharsets.UTF_8)) {
+            writeJson(metrics, writer);
+        }
+        try (Writer writer = Files.newBufferedWriter(new File(directory, OPEN_METRICS_FILE).toPath(), StandardCharsets.UTF_8)) {
+            writeOpenMetrics(metrics, writer);
+        }
+    }
+
+    public void writeJson(RunMetrics metrics, Writer writer) throws IOException {
+        writer.write("{\n  \"task\": \"" + Json.escape(metrics.getTask()) + "\",\n");
+        writer.write("  \"outcome\": \"" + Json.escape(metrics.getOutcome()) + "\",\n");
+        writer.write("  \"startTime\": " + metrics.getStartTime() + ",\n");
+        writer.write("  \"elapsedTime\": " + metrics.getElapsedTime() + ",\n");
+        writer.write("  \"phases\": ");
+        writeObject(writer, metrics.getPhases());
+        for (Map.Entry<String, Map<String, Long>> entry : metrics.getSections().entrySet()) {
+            writer.write(",\n  \"" + Json.escape(entry.getKey()) + "\": ");
+            writeObject(writer, entry.getValue());
+        }
+        writer.write("\n}\n");
+    }
+
+    public void writeOpenMetrics(RunMetrics metrics, Writer writer) throws IOException {
+        String task = "task=\"" + escapeLabel(metrics.getTask()) + "\"";
+
+        writer.write("# TYPE " + PREFIX + "_run info\n");
+        writer.write("# HELP " + PREFIX + "_run The test run.\n");
+        writer.write(PREFIX + "_run_info{" + task + ",outcome=\"" + escapeLabel(metrics.getOutcome()) + "\"} 1\n");
+
+        writer.write("# TYPE " + PREFIX + "_duration_seconds gauge\n");
+        writer.write("# UNIT " + PREFIX + "_duration_seconds seconds\n");
+        writer.write("# HELP " + PREFIX + "_duration_seconds The duration of the test run.\n");
+        writer.write(PREFIX + "_duration_seconds{" + task + "} " + seconds(metrics.getElapsedTime()) + "\n");
+
+        Map<String, Long> phases = metrics.getPhases();
+        if (!phases.isEmpty()) {
+            writer.write("# TYPE " + PREFIX + "_phase_duration_seconds gauge\n");
+            writer.write("# UNIT " + PREFIX + "_phase_duration_seconds seconds\n");
+            writer.write("# HELP " + PREFIX + "_phase_duration_seconds The duration of a phase of the test run.\n");
+            for (Map.Entry<String, Long> entry : phases.entrySet()) {
+                writer.write(PREFIX + "_phase_duration_seconds{" + task + ",phase=\"" + escapeLabel(entry.getKey()) + "\"} " + seconds(entry.getValue()) + "\n");
+            }
+        }
+
+        for (Map.Entry<String, Map<String, Long>> section : metrics.getSections().entrySet()) {
+            for (Map.Entry<String, Long> entry : section.getValue().entrySet()) {
+                String name = PREFIX + "_" + toSnakeCase(section.getKey()) + "_" + toSnakeCase(entry.getKey());
+                writer.write("# TYPE " + name + " gauge\n");
+                if (name.endsWith("_bytes")) {
+                    writer.write("# UNIT " + name + " bytes\n");
+                }
+                writer.write(name + "{" + task + "} " + entry.getValue() + "\n");
+            }
+        }
+        writer.write("# EOF\n");
+    }
+
+    private void writeObject(Writer writer, Map<String, Long> values) throws IOException {
+        writer.write("{");
+        boolean first = true;
+        for (Map.Entry<String, Long> entry : values.entrySet()) {
+            writer.write(first ? "\n" : ",\n");
+            first = false;
+            writer.write("    \"" + Json.escape(entry.getKey()) + "\": " + entry.getValue());
+        }
+        writer.write(first ? "}" : "\n  }");
+    }
+
+    private String seconds(long millis) {
+        return String.valueOf(millis / 1000.0);
+    }
+
+    private String toSnakeCase(String name) {
+        StringBuilder builder = new StringBuilder(name.length() + 8);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c)) {
+                if (i > 0) {
+                    builder.append('_');
+                }
+                builder.append(Character.toLowerCase(c));
+            } else if (Character.isLetterOrDigit(c)) {
+                builder.append(c);
+            } else {
+                builder.append('_');
+            }
+        }
+        return builder.toString();
+    }
+
+    private String escapeLabel(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
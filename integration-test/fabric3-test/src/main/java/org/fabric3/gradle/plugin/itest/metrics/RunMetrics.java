@@ -0,0 +1,163 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Collects metrics for a run of the test task: phase durations, test counts, resolution statistics, and heap and thread high-water marks.
+ *
+ * Values other than phase durations are grouped in named sections. Heap and thread peaks are sampled periodically while the run is in progress rather
+ * than read from the JVM high-water marks, since resetting those would corrupt the peaks of other test tasks running concurrently in the same Gradle
+ * daemon. The heap and threads are shared by the daemon, so peaks include the usage of concurrent tasks.
+ */
+public class RunMetrics {
+    public static final String TESTS = "tests";
+    public static final String RESOLUTION = "resolution";
+    public static final String HEAP = "heap";
+    public static final String THREADS = "threads";
+
+    private static final long SAMPLE_INTERVAL = 50;
+
+    private String task;
+    private long startTime;
+    private long start;
+    private long elapsedTime;
+    private String outcome;
+    private Map<String, Long> phases = new LinkedHashMap<>();
+    private Map<String, Map<String, Long>> sections = new LinkedHashMap<>();
+    private Timer sampler;
+    private long peakUsedBytes;
+    private int peakThreads;
+
+    public RunMetrics(String task) {
+        this.task = task;
+    }
+
+    /**
+     * Starts the run and begins sampling heap and thread usage.
+     */
+    public synchronized void start() {
+        startTime = System.currentTimeMillis();
+        start = System.nanoTime();
+        sample();
+        sampler = new Timer("fabric3-metrics", true);
+        sampler.schedule(new TimerTask() {
+            public void run() {
+                sample();
+            }
+        }, SAMPLE_INTERVAL, SAMPLE_INTERVAL);
+    }
+
+    /**
+     * Stops sampling heap and thread usage. Called when the run ends, including when it fails before the metrics are finished.
+     */
+    public synchronized void stop() {
+        if (sampler != null) {
+            sampler.cancel();
+            sampler = null;
+        }
+    }
+
+    /**
+     * Records the duration of a phase.
+     *
+     * @param name        the phase name
+     * @param elapsedTime the duration in milliseconds
+     */
+    public synchronized void phase(String name, long elapsedTime) {
+        phases.put(name, elapsedTime);
+    }
+
+    /**
+     * Sets a value.
+     *
+     * @param section the section
+     * @param name    the value name
+     * @param value   the value
+     */
+    public synchronized void set(String section, String name, long value) {
+        Map<String, Long> values = sections.get(section);
+        if (values == null) {
+            values = new LinkedHashMap<>();
+            sections.put(section, values);
+        }
+        values.put(name, value);
+    }
+
+    /**
+     * Ends the run and records the sampled heap and thread peaks along with current usage.
+     *
+     * @param outcome the outcome of the run
+     */
+    public synchronized void finish(String outcome) {
+        this.outcome = outcome;
+        elapsedTime = (System.nanoTime() - start) / 1000000;
+        stop();
+        sample();
+
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        set(HEAP, "peakUsedBytes", peakUsedBytes);
+        set(HEAP, "usedBytes", heap.getUsed());
+        set(HEAP, "committedBytes", heap.getCommitted());
+        set(HEAP, "maxBytes", heap.getMax());
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        set(THREADS, "peak", peakThreads);
+        set(THREADS, "live", threads.getThreadCount());
+        set(THREADS, "daemon", threads.getDaemonThreadCount());
+    }
+
+    private synchronized void sample() {
+        peakUsedBytes = Math.max(peakUsedBytes, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+        peakThreads = Math.max(peakThreads, ManagementFactory.getThreadMXBean().getThreadCount());
+    }
+
+    public String getTask() {
+        return task;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public synchronized long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    public synchronized String getOutcome() {
+        return outcome;
+    }
+
+    public synchronized Map<String, Long> getPhases() {
+        return new LinkedHashMap<>(phases);
+    }
+
+    public synchronized Map<String, Map<String, Long>> getSections() {
+        Map<String, Map<String, Long>> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Long>> entry : sections.entrySet()) {
+            copy.put(entry.getKey(), new LinkedHashMap<>(entry.getValue()));
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.report;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.fabric3.gradle.plugin.api.test.ResourceUsage;
+import org.fabric3.gradle.plugin.api.test.TestFailure;
+import org.fabric3.gradle.plugin.api.test.TestResult;
+import org.fabric3.gradle.plugin.api.test.TestSuiteResult;
+
+/**
+ * Writes a self-contained HTML summary of a test run.
+ *
+ * Suites are added as they are reported and only their totals and failure headlines are retained, so the summary can be produced in the same pass as
+ * the XML report.
+ */
+public class HtmlSummaryWriter {
+    private static final int MAX_MESSAGE_LENGTH = 200;
+
+    private List<SuiteSummary> suites = new ArrayList<>();
+    private int tests;
+    private int failures;
+    private long elapsedTime;
+
+    /**
+     * Adds a suite to the summary.
+     *
+     * @param result the suite result
+     */
+    public void add(TestSuiteResult result) {
+        SuiteSummary summary = new SuiteSummary(result.getTestClassName(), result.getSuccessfulTests() + result.getFailedTests(), result.getFailedTests(),
+                                                result.getElapsedTime());
+        for (TestResult test : result.getTestResults()) {
+            TestFailure failure = test.getFailure();
+            if (failure != null) {
+                summary.failedTests.add(test.getTestMethodName() + ": " + truncate(failure.toString()));
+            }
+            summary.overheadTime = add(summary.overheadTime, test.getOverheadTime());
+            ResourceUsage usage = test.getResourceUsage();
+            if (usage != null) {
+                summary.cpuTime = add(summary.cpuTime, usage.getCpuTime());
+                summary.allocatedBytes = add(summary.allocatedBytes, usage.getAllocatedBytes());
+            }
+        }
+        suites.add(summary);
+        tests = tests + summary.tests;
+        failures = failures + summary.failures;
+        elapsedTime = elapsedTime + summary.elapsedTime;
+    }
+
+    /**
+     * Writes the summary.
+     *
+     * @param stream the stream
+     * @throws IOException if there is an error writing the summary
+     */
+    public void write(OutputStream stream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        writer.write("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>Fabric3 integration tests</title><style>\n");
+        writer.write("body{font-family:sans-serif;margin:2em}table{border-collapse:collapse}td,th{padding:4px 12px;text-align:left;border-bottom:1px solid #ddd}");
+        writer.write(".failed{color:#b00}.passed{color:#070}ul{margin:2px 0;font-family:monospace;font-size:smaller}\n");
+        writer.write("</style></head><body>\n<h1>Fabric3 integration tests</h1>\n<p class=\"");
+        writer.write(failures > 0 ? "failed" : "passed");
+        writer.write("\">" + tests + " tests, " + failures + " failed, " + suites.size() + " suites, " + formatTime(elapsedTime) + "</p>\n");
+        writer.write("<table><tr><th>Suite</th><th>Tests</th><th>Failures</th><th>Time</th><th>Overhead</th><th>CPU</th><th>Allocated</th></tr>\n");
+        for (SuiteSummary suite : suites) {
+            writer.write("<tr class=\"" + (suite.failures > 0 ? "failed" : "passed") + "\"><td>");
+            writer.write(escape(suite.name));
+            if (!suite.failedTests.isEmpty()) {
+                writer.write("<ul>");
+                for (String failedTest : suite.failedTests) {
+                    writer.write("<li>" + escape(failedTest) + "</li>");
+                }
+                writer.write("</ul>");
+            }
+            writer.write("</td><td>" + suite.tests + "</td><td>" + suite.failures + "</td><td>" + formatTime(suite.elapsedTime) + "</td><td>");
+            writer.write(suite.overheadTime != ResourceUsage.UNAVAILABLE ? formatTime(suite.overheadTime / 1000000) : "");
+            writer.write("</td><td>");
+            writer.write(suite.cpuTime != ResourceUsage.UNAVAILABLE ? formatTime(suite.cpuTime / 1000000) : "");
+            writer.write("</td><td>" + (suite.allocatedBytes != ResourceUsage.UNAVAILABLE ? formatBytes(suite.allocatedBytes) : "") + "</td></tr>\n");
+        }
+        writer.write("</table>\n</body></html>\n");
+        writer.flush();
+    }
+
+    private String truncate(String text) {
+        int newLine = text.indexOf('\n');
+        if (newLine >= 0) {
+            text = text.substring(0, newLine);
+        }
+        return text.length() > MAX_MESSAGE_LENGTH ? text.substring(0, MAX_MESSAGE_LENGTH) + "..." : text;
+    }
+
+    private String formatTime(long millis) {
+        return millis / 1000.0 + "s";
+    }
+
+    private String formatBytes(long bytes) {
+        if (bytes < 1024 * 1024) {
+            return bytes / 1024 + " KB";
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Adds a measurement to a total. The total is unavailable if no test was measured.
+     */
+    private long add(long total, long value) {
+        if (value == ResourceUsage.UNAVAILABLE) {
+            return total;
+        }
+        return total == ResourceUsage.UNAVAILABLE ? value : total + value;
+    }
+
+    private String escape(String text) {
+        StringBuilder builder = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    builder.append("&lt;");
+                    break;
+                case '>':
+                    builder.append("&gt;");
+                    break;
+                case '&':
+                    builder.append("&amp;");
+                    break;
+                case '"':
+                    builder.append("&quot;");
+                    break;
+                default:
+                    builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static class SuiteSummary {
+        private String name;
+        private int tests;
+        private int failures;
+        private long elapsedTime;
+        private long overheadTime = ResourceUsage.UNAVAILABLE;
+        private long cpuTime = ResourceUsage.UNAVAILABLE;
+        private long allocatedBytes = ResourceUsage.UNAVAILABLE;
+        private List<String> failedTests = new ArrayList<>();
+
+        private SuiteSummary(String name, int tests, int failures, long elapsedTime) {
+            this.name = name;
+            this.tests = tests;
+            this.failures = failures;
+            this.elapsedTime = elapsedTime;
+        }
+    }
+}
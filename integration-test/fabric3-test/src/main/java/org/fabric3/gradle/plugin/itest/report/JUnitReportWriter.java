@@ -19,6 +19,7 @@ package org.fabric3.gradle.plugin.itest.report;
 import java.io.OutputStream;
 
 import org.fabric3.gradle.plugin.api.test.TestRecorder;
+import org.fabric3.gradle.plugin.api.test.TestSuiteResult;
 
 /**
  * Writes a JUnit report to a stream.
@@ -34,4 +35,13 @@ public interface JUnitReportWriter {
      */
     void write(TestRecorder recorder, OutputStream stream) throws ReportException;
 
+    /**
+     * Writes a JUnit report based on a sequence of suite results to a stream.
+     *
+     * @param results the suite results
+     * @param stream  the stream
+     * @throws ReportException if there is an error
+     */
+    void write(Iterable<TestSuiteResult> results, OutputStream stream) throws ReportException;
+
 }
@@ -20,19 +20,29 @@ import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import java.io.OutputStream;
-import java.io.PrintWriter;
-import java.io.StringWriter;
-import java.util.List;
+import java.util.Collection;
+import java.util.Map;
 
 import org.apache.tools.ant.util.DateUtils;
+import org.fabric3.gradle.plugin.api.test.ResourceUsage;
+import org.fabric3.gradle.plugin.api.test.TestFailure;
 import org.fabric3.gradle.plugin.api.test.TestRecorder;
 import org.fabric3.gradle.plugin.api.test.TestResult;
 import org.fabric3.gradle.plugin.api.test.TestSuiteResult;
 
 /**
- *
+ * Writes JUnit XML reports using a streaming XML writer.
  */
 public class JUnitReportWriterImpl implements JUnitReportWriter {
+    public static final String CPU_TIME_PROPERTY = "fabric3.cpuTime";
+    public static final String ALLOCATED_BYTES_PROPERTY = "fabric3.allocatedBytes";
+    public static final String GC_COUNT_PROPERTY = "fabric3.gcCount";
+    public static final String GC_TIME_PROPERTY = "fabric3.gcTime";
+    public static final String BODY_TIME_PROPERTY = "fabric3.bodyTime";
+    public static final String OVERHEAD_TIME_PROPERTY = "fabric3.overheadTime";
+
+    static final String ENCODING = "UTF-8";
+
     private XMLOutputFactory factory;
 
     public JUnitReportWriterImpl() {
@@ -40,32 +50,22 @@ public class JUnitReportWriterImpl implements JUnitReportWriter {
     }
 
     public void write(TestRecorder recorder, OutputStream stream) throws ReportException {
+        write(recorder.getResults(), stream);
+    }
+
+    public void write(Iterable<TestSuiteResult> results, OutputStream stream) throws ReportException {
         XMLStreamWriter writer = null;
         try {
-            writer = factory.createXMLStreamWriter(stream);
-            writer.writeStartDocument();
+            writer = factory.createXMLStreamWriter(stream, ENCODING);
+            // the declaration must match the header written by ParallelReportWriter
+            writer.writeStartDocument(ENCODING, "1.0");
             writer.writeStartElement("testsuites");
-            for (TestSuiteResult result : recorder.getResults()) {
-                writer.writeStartElement("testsuite");
-
-                int numFailed = result.getFailedTests();
-                int numSuccessful = result.getSuccessfulTests();
-                writer.writeAttribute("name", result.getTestClassName());
-                writer.writeAttribute("failures", String.valueOf(numFailed));
-                writer.writeAttribute("tests", String.valueOf(numFailed + numSuccessful));
-                writer.writeAttribute("time", String.valueOf(result.getElapsedTime() / 1000.0));
-                writer.writeAttribute("errors", "0");
-                writer.writeAttribute("timestamp", DateUtils.format(result.getStartTime(), DateUtils.ISO8601_DATETIME_PATTERN));
-
-                writer.writeStartElement("properties");
-                writer.writeEndElement();
-
-                writeTests(writer, result.getTestResults());
-
-                writer.writeEndElement(); // testsuite
+            for (TestSuiteResult result : results) {
+                writeSuite(writer, result);
             }
             writer.writeEndElement(); // testsuites
             writer.writeEndDocument();
+            writer.flush();
         } catch (XMLStreamException e) {
             if (writer != null) {
                 try {
@@ -74,32 +74,160 @@ public class JUnitReportWriterImpl implements JUnitReportWriter {
                     // ignore
                 }
             }
+            throw new ReportException(e);
+        }
+    }
+
+    /**
+     * Writes a single suite report as a standalone document.
+     *
+     * @param result the suite result
+     * @param stream the stream
+     * @throws ReportException if there is an error
+     */
+    public void write(TestSuiteResult result, OutputStream stream) throws ReportException {
+        try {
+            XMLStreamWriter writer = factory.createXMLStreamWriter(stream, ENCODING);
+            writer.writeStartDocument(ENCODING, "1.0");
+            writeSuite(writer, result);
+            writer.writeEndDocument();
+            writer.flush();
+        } catch (XMLStreamException e) {
+            throw new ReportException(e);
+        }
+    }
+
+    /**
+     * Writes a suite element without an XML declaration so that it can be combined with other suites in a report. This method may be called
+     * concurrently.
+     *
+     * @param result the suite result
+     * @param stream the stream
+     * @throws ReportException if there is an error
+     */
+    public void writeFragment(TestSuiteResult result, OutputStream stream) throws ReportException {
+        try {
+            XMLStreamWriter writer;
+            synchronized (factory) {
+                writer = factory.createXMLStreamWriter(stream, ENCODING);
+            }
+            writeSuite(writer, result);
+            writer.flush();
+        } catch (XMLStreamException e) {
+            throw new ReportException(e);
+        }
+    }
+
+    private void writeSuite(XMLStreamWriter writer, TestSuiteResult result) throws XMLStreamException {
+        writer.writeStartElement("testsuite");
+
+        int numFailed = result.getFailedTests();
+        int numSuccessful = result.getSuccessfulTests();
+        writer.writeAttribute("name", result.getTestClassName());
+        writer.writeAttribute("failures", String.valueOf(numFailed));
+        writer.writeAttribute("tests", String.valueOf(numFailed + numSuccessful));
+        writer.writeAttribute("time", String.valueOf(result.getElapsedTime() / 1000.0));
+        writer.writeAttribute("errors", "0");
+        writer.writeAttribute("timestamp", DateUtils.format(result.getStartTime(), DateUtils.ISO8601_DATETIME_PATTERN));
+
+        writer.writeStartElement("properties");
+        for (Map.Entry<String, String> entry : result.getProperties().entrySet()) {
+            writeProperty(writer, entry.getKey(), entry.getValue());
         }
+        writer.writeEndElement();
+
+        writeTests(writer, result.getTestResults());
+
+        writer.writeEndElement(); // testsuite
     }
 
-    private void writeTests(XMLStreamWriter writer, List<TestResult> results) throws XMLStreamException {
+    private void writeTests(XMLStreamWriter writer, Collection<TestResult> results) throws XMLStreamException {
         for (TestResult result : results) {
             // TODO support skipped test cases
             writer.writeStartElement("testcase");
             writer.writeAttribute("name", result.getTestMethodName());
             writer.writeAttribute("time", String.valueOf(result.getElapsedTime() / 1000.0));
+            writeTestProperties(writer, result);
             if (TestResult.Type.FAILED == result.getType()) {
                 writer.writeStartElement("failure");
-                Throwable throwable = result.getThrowable();
-                writer.writeAttribute("message", throwable.toString());
-                writer.writeAttribute("type", throwable.getClass().getName());
-                writer.writeCharacters(getStackTrace(throwable));
+                TestFailure failure = result.getFailure();
+                writer.writeAttribute("message", failure.toString());
+                writer.writeAttribute("type", failure.getType());
+                writer.writeCharacters(failure.getStackTrace());
                 writer.writeEndElement();
             }
+            writeOutput(writer, "system-out", result.getSystemOut());
+            writeOutput(writer, "system-err", result.getSystemErr());
             writer.writeEndElement();
         }
     }
 
-    private String getStackTrace(Throwable throwable) {
-        StringWriter sw = new StringWriter();
-        PrintWriter writer = new PrintWriter(sw);
-        throwable.printStackTrace(writer);
-        writer.close();
-        return sw.toString();
+    /**
+     * Writes resource usage and invocation times as testcase properties. Times are in seconds, consistent with the time attribute.
+     */
+    private void writeTestProperties(XMLStreamWriter writer, TestResult result) throws XMLStreamException {
+        ResourceUsage usage = result.getResourceUsage();
+        if (usage == null && result.getBodyTime() == ResourceUsage.UNAVAILABLE) {
+            return;
+        }
+        writer.writeStartElement("properties");
+        if (result.getBodyTime() != ResourceUsage.UNAVAILABLE) {
+            writeProperty(writer, BODY_TIME_PROPERTY, String.valueOf(result.getBodyTime() / 1000000000.0));
+            writeProperty(writer, OVERHEAD_TIME_PROPERTY, String.valueOf(result.getOverheadTime() / 1000000000.0));
+        }
+        if (usage != null) {
+            writeResourceUsage(writer, usage);
+        }
+        writer.writeEndElement();
+    }
+
+    private void writeResourceUsage(XMLStreamWriter writer, ResourceUsage usage) throws XMLStreamException {
+        if (usage.getCpuTime() != ResourceUsage.UNAVAILABLE) {
+            writeProperty(writer, CPU_TIME_PROPERTY, String.valueOf(usage.getCpuTime() / 1000000000.0));
+        }
+        if (usage.getAllocatedBytes() != ResourceUsage.UNAVAILABLE) {
+            writeProperty(writer, ALLOCATED_BYTES_PROPERTY, String.valueOf(usage.getAllocatedBytes()));
+        }
+        if (usage.getGcCount() != ResourceUsage.UNAVAILABLE) {
+            writeProperty(writer, GC_COUNT_PROPERTY, String.valueOf(usage.getGcCount()));
+        }
+        if (usage.getGcTime() != ResourceUsage.UNAVAILABLE) {
+            writeProperty(writer, GC_TIME_PROPERTY, String.valueOf(usage.getGcTime() / 1000.0));
+        }
+    }
+
+    private void writeProperty(XMLStreamWriter writer, String name, String value) throws XMLStreamException {
+        writer.writeEmptyElement("property");
+        writer.writeAttribute("name", name);
+        writer.writeAttribute("value", value);
+    }
+
+    private void writeOutput(XMLStreamWriter writer, String element, String output) throws XMLStreamException {
+        if (output == null) {
+            return;
+        }
+        writer.writeStartElement(element);
+        writer.writeCharacters(stripInvalidCharacters(output));
+        writer.writeEndElement();
+    }
+
+    /**
+     * Removes characters that are not allowed in XML 1.0, such as terminal control codes in captured output.
+     */
+    private String stripInvalidCharacters(String text) {
+        StringBuilder builder = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean valid = c == '\t' || c == '\n' || c == '\r' || (c >= 0x20 && c <= 0xFFFD);
+            if (valid) {
+                if (builder != null) {
+                    builder.append(c);
+                }
+            } else if (builder == null) {
+                builder = new StringBuilder(text.length());
+                builder.append(text, 0, i);
+            }
+        }
+        return builder != null ? builder.toString() : text;
     }
 }
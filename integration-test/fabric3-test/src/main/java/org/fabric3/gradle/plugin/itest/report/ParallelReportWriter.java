@@ -0,0 +1,151 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.report;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import org.fabric3.gradle.plugin.api.test.TestSuiteResult;
+
+/**
+ * Writes the aggregate JUnit report, rendering suites on multiple threads.
+ *
+ * Suites are rendered to XML fragments concurrently and written to the report in their original order. The number of suites being rendered at any time is
+ * bounded, so results read from the result log are not all held in memory. The report may be gzip compressed, and an HTML summary may be produced from
+ * the same pass over the results.
+ */
+public class ParallelReportWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // the same declaration JUnitReportWriterImpl writes for a single-threaded report
+    private static final byte[] HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><testsuites>".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FOOTER = "</testsuites>".getBytes(StandardCharsets.UTF_8);
+
+    private JUnitReportWriterImpl reportWriter;
+    private int threads;
+
+    public ParallelReportWriter(JUnitReportWriterImpl reportWriter, int threads) {
+        this.reportWriter = reportWriter;
+        this.threads = Math.max(threads, 1);
+    }
+
+    /**
+     * Writes the report to <code>tests.xml</code>, or <code>tests.xml.gz</code> if compressed, and optionally the HTML summary to
+     * <code>index.html</code>.
+     *
+     * @param results   the suite results
+     * @param outputDir the report directory
+     * @param compress  true if the report is gzip compressed
+     * @param html      true if an HTML summary is written
+     * @throws ReportException if there is an error writing the report
+     */
+    public void write(Iterable<TestSuiteResult> results, File outputDir, boolean compress, boolean html) throws ReportException {
+        HtmlSummaryWriter summary = html ? new HtmlSummaryWriter() : null;
+        File file = new File(outputDir, compress ? "tests.xml.gz" : "tests.xml");
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads, new ReportThreadFactory()) : null;
+        try (OutputStream stream = open(file, compress)) {
+            stream.write(HEADER);
+            Deque<Future<byte[]>> pending = new ArrayDeque<>();
+            for (final TestSuiteResult result : results) {
+                if (summary != null) {
+                    summary.add(result);
+                }
+                if (executor == null) {
+                    reportWriter.writeFragment(result, stream);
+                    continue;
+                }
+                pending.add(executor.submit(new Callable<byte[]>() {
+                    public byte[] call() throws ReportException {
+                        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                        reportWriter.writeFragment(result, buffer);
+                        return buffer.toByteArray();
+                    }
+                }));
+                // bound the number of rendered suites held in memory
+                if (pending.size() >= threads * 2) {
+                    stream.write(get(pending.removeFirst()));
+                }
+            }
+            while (!pending.isEmpty()) {
+                stream.write(get(pending.removeFirst()));
+            }
+            stream.write(FOOTER);
+        } catch (IOException e) {
+            throw new ReportException(e);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        if (summary != null) {
+            try (OutputStream stream = open(new File(outputDir, "index.html"), false)) {
+                summary.write(stream);
+            } catch (IOException e) {
+                throw new ReportException(e);
+            }
+        }
+    }
+
+    private byte[] get(Future<byte[]> future) throws ReportException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ReportException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ReportException) {
+                throw (ReportException) e.getCause();
+            }
+            throw new ReportException(e.getCause());
+        }
+    }
+
+    private OutputStream open(File file, boolean compress) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        OutputStream stream = Channels.newOutputStream(channel);
+        if (compress) {
+            return new BufferedOutputStream(new GZIPOutputStream(stream, BUFFER_SIZE), BUFFER_SIZE);
+        }
+        return new BufferedOutputStream(stream, BUFFER_SIZE);
+    }
+
+    private static class ReportThreadFactory implements ThreadFactory {
+        private AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "fabric3-report-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
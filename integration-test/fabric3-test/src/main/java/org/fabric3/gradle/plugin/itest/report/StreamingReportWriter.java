@@ -0,0 +1,154 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.report;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.fabric3.gradle.plugin.api.test.TestListenerAdapter;
+import org.fabric3.gradle.plugin.api.test.TestSuiteResult;
+
+/**
+ * Writes a JUnit report file per test suite as soon as the suite completes.
+ *
+ * Reports are named <code>TEST-&lt;class&gt;.xml</code>, or <code>TEST-&lt;class&gt;.xml.gz</code> if compressed, so that results are available to CI
+ * servers even if the run does not complete. When the run finishes, {@link #finish()} writes an index of the suite reports and optionally the HTML
+ * summary to <code>index.html</code>.
+ */
+public class StreamingReportWriter extends TestListenerAdapter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private File outputDir;
+    private JUnitReportWriterImpl reportWriter;
+    private boolean compress;
+    private HtmlSummaryWriter summary;
+    private XMLOutputFactory factory;
+
+    private List<SuiteEntry> entries = new ArrayList<>();
+    private ReportException error;
+
+    /**
+     * Constructor.
+     *
+     * @param outputDir    the report directory
+     * @param reportWriter the suite report writer
+     * @param compress     true if suite reports are gzip compressed
+     * @param html         true if an HTML summary is written
+     */
+    public StreamingReportWriter(File outputDir, JUnitReportWriterImpl reportWriter, boolean compress, boolean html) {
+        this.outputDir = outputDir;
+        this.reportWriter = reportWriter;
+        this.compress = compress;
+        this.summary = html ? new HtmlSummaryWriter() : null;
+        factory = XMLOutputFactory.newFactory();
+    }
+
+    public synchronized void suiteFinished(TestSuiteResult result) {
+        if (error != null) {
+            return;
+        }
+        String fileName = "TEST-" + result.getTestClassName() + (compress ? ".xml.gz" : ".xml");
+        try (OutputStream stream = open(new File(outputDir, fileName), compress)) {
+            reportWriter.write(result, stream);
+        } catch (IOException e) {
+            error = new ReportException(e);
+            return;
+        } catch (ReportException e) {
+            error = e;
+            return;
+        }
+        if (summary != null) {
+            summary.add(result);
+        }
+        int failed = result.getFailedTests();
+        int tests = failed + result.getSuccessfulTests();
+        entries.add(new SuiteEntry(result.getTestClassName(), fileName, tests, failed, result.getElapsedTime()));
+    }
+
+    /**
+     * Writes the report index and the HTML summary if enabled.
+     *
+     * @throws ReportException if there was an error writing a suite report or the index
+     */
+    public synchronized void finish() throws ReportException {
+        if (error != null) {
+            throw error;
+        }
+        try (OutputStream stream = open(new File(outputDir, "index.xml"), false)) {
+            XMLStreamWriter writer = factory.createXMLStreamWriter(stream);
+            writer.writeStartDocument();
+            writer.writeStartElement("testsuites");
+            for (SuiteEntry entry : entries) {
+                writer.writeStartElement("testsuite");
+                writer.writeAttribute("name", entry.name);
+                writer.writeAttribute("file", entry.fileName);
+                writer.writeAttribute("tests", String.valueOf(entry.tests));
+                writer.writeAttribute("failures", String.valueOf(entry.failures));
+                writer.writeAttribute("time", String.valueOf(entry.elapsedTime / 1000.0));
+                writer.writeEndElement();
+            }
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.flush();
+        } catch (IOException | XMLStreamException e) {
+            throw new ReportException(e);
+        }
+        if (summary != null) {
+            try (OutputStream stream = open(new File(outputDir, "index.html"), false)) {
+                summary.write(stream);
+            } catch (IOException e) {
+                throw new ReportException(e);
+            }
+        }
+    }
+
+    private OutputStream open(File file, boolean compress) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        OutputStream stream = Channels.newOutputStream(channel);
+        if (compress) {
+            return new BufferedOutputStream(new GZIPOutputStream(stream, BUFFER_SIZE), BUFFER_SIZE);
+        }
+        return new BufferedOutputStream(stream, BUFFER_SIZE);
+    }
+
+    private static class SuiteEntry {
+        private String name;
+        private String fileName;
+        private int tests;
+        private int failures;
+        private long elapsedTime;
+
+        private SuiteEntry(String name, String fileName, int tests, int failures, long elapsedTime) {
+            this.name = name;
+            this.fileName = fileName;
+            this.tests = tests;
+            this.failures = failures;
+            this.elapsedTime = elapsedTime;
+        }
+    }
+}
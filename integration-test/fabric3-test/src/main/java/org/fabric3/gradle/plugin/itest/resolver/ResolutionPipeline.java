@@ -0,0 +1,112 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.resolver;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gradle.api.GradleException;
+
+/**
+ * Runs independent resolution steps so that later boot steps only wait for the results they need.
+ *
+ * When pipelining is enabled, submitted steps run on background threads; otherwise they are run immediately on the calling thread. Steps that run
+ * concurrently must not share a repository session; see {@link ResolverFactory}. Pipelining overlaps resolution steps with each other and with
+ * classloader creation, not with booting the runtime, which needs all extensions to be resolved.
+ */
+public class ResolutionPipeline {
+    private ExecutorService executor;
+
+    public ResolutionPipeline(boolean pipelined, int threads) {
+        if (pipelined) {
+            final AtomicInteger count = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "fabric3-resolver-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+    /**
+     * Submits a resolution step.
+     *
+     * @param step the step
+     * @return the future result of the step
+     */
+    public <T> Future<T> submit(Callable<T> step) {
+        if (executor != null) {
+            return executor.submit(step);
+        }
+        FutureTask<T> task = new FutureTask<>(step);
+        task.run();
+        return task;
+    }
+
+    /**
+     * Runs a resolution step on the calling thread.
+     *
+     * @param step the step
+     * @return the result of the step
+     * @throws GradleException if the step failed
+     */
+    public <T> T call(Callable<T> step) throws GradleException {
+        FutureTask<T> task = new FutureTask<>(step);
+        task.run();
+        return get(task);
+    }
+
+    /**
+     * Waits for the result of a resolution step.
+     *
+     * @param future the future result
+     * @return the result
+     * @throws GradleException if the step failed
+     */
+    public <T> T get(Future<T> future) throws GradleException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof GradleException) {
+                throw (GradleException) cause;
+            }
+            throw new GradleException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted during resolution", e);
+        }
+    }
+
+    /**
+     * Stops the pipeline threads, cancelling steps that have not completed.
+     */
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+}
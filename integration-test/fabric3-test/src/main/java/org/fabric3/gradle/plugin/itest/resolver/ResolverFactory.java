@@ -0,0 +1,55 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.resolver;
+
+import java.util.List;
+
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.fabric3.plugin.resolver.Resolver;
+import org.gradle.internal.service.ServiceRegistry;
+
+/**
+ * Creates resolvers for resolution steps that run concurrently. Each resolver has its own repository session since sessions are not safe for
+ * concurrent use.
+ */
+public class ResolverFactory {
+    private RepositorySystem system;
+    private ServiceRegistry registry;
+    private boolean offline;
+    private List<RemoteRepository> repositories;
+    private String runtimeVersion;
+
+    public ResolverFactory(RepositorySystem system, ServiceRegistry registry, boolean offline, List<RemoteRepository> repositories, String runtimeVersion) {
+        this.system = system;
+        this.registry = registry;
+        this.offline = offline;
+        this.repositories = repositories;
+        this.runtimeVersion = runtimeVersion;
+    }
+
+    /**
+     * Creates a resolver with a new repository session.
+     *
+     * @return the resolver
+     */
+    public Resolver createResolver() {
+        RepositorySystemSession session = AetherBootstrap.getRepositorySystemSession(system, registry, offline);
+        return new Resolver(system, session, repositories, runtimeVersion);
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.runtime;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.fabric3.api.annotation.monitor.MonitorLevel;
+import org.gradle.api.logging.Logger;
+
+/**
+ * Forwards monitor events to the Gradle logger from a dedicated thread so that components raising events are not slowed down by logging.
+ *
+ * Enabled events are placed in a bounded ring buffer without being formatted and are formatted and logged by a single daemon thread. When the buffer is
+ * full, the {@link OverflowPolicy} determines whether the raising thread waits or the event is dropped. Waiting threads are parked until the logging
+ * thread frees space. Events raised on a thread that is capturing test output are still added to the capture synchronously.
+ */
+public class AsyncDestinationRouter extends PluginDestinationRouter {
+    private static final long IDLE_WAIT = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long CLOSE_TIMEOUT = TimeUnit.SECONDS.toMillis(5);
+
+    private MonitorRingBuffer<Event> buffer;
+    private OverflowPolicy policy;
+    private AtomicLong dropped = new AtomicLong();
+    private AtomicInteger producers = new AtomicInteger();
+    private Lock lock = new ReentrantLock();
+    private Condition notFull = lock.newCondition();
+    private volatile int blocked;
+    private Thread thread;
+    private volatile boolean waiting;
+    private volatile boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param logger    the logger
+     * @param rateLimit the number of events logged per second for a source and message template or 0 for no limit
+     * @param capacity  the maximum number of buffered events
+     * @param policy    the policy applied when the buffer is full
+     */
+    public AsyncDestinationRouter(Logger logger, int rateLimit, int capacity, OverflowPolicy policy) {
+        super(logger, rateLimit);
+        this.buffer = new MonitorRingBuffer<>(capacity);
+        this.policy = policy;
+        thread = new Thread("fabric3-monitor") {
+            public void run() {
+                drain();
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Logs buffered events and stops the logging thread, waiting a bounded amount of time. Events raised afterwards are logged synchronously.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        flushSuppressed();
+        closed = true;
+        signalNotFull();
+        LockSupport.unpark(thread);
+        long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT;
+        try {
+            thread.join(CLOSE_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // producers that registered before the router was closed may still be adding events
+        while (producers.get() > 0 && System.currentTimeMillis() < deadline) {
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        if (thread.isAlive() || producers.get() > 0) {
+            logger.warn("Monitor events were not flushed within " + CLOSE_TIMEOUT + " ms");
+            return;
+        }
+        // the logging thread and producers have stopped, so this thread can consume events added while they were stopping
+        deliverAll();
+        reportDropped();
+    }
+
+    protected void dispatch(MonitorLevel level, String message, Object[] args) {
+        producers.incrementAndGet();
+        try {
+            // checked after registering as a producer so that close() waits for an event that is being added
+            if (closed) {
+                super.dispatch(level, message, args);
+                return;
+            }
+            Event event = new Event(level, message, args);
+            if (!buffer.offer(event)) {
+                if (OverflowPolicy.DROP == policy) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                if (!awaitOffer(event)) {
+                    // closed while waiting for space
+                    super.dispatch(level, message, args);
+                    return;
+                }
+            }
+            if (waiting) {
+                waiting = false;
+                LockSupport.unpark(thread);
+            }
+        } finally {
+            producers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Parks the current thread until the event is added to the buffer.
+     *
+     * @param event the event
+     * @return true if the event was added or false if the router was closed first
+     */
+    private boolean awaitOffer(Event event) {
+        boolean interrupted = false;
+        lock.lock();
+        try {
+            blocked++;
+            while (!buffer.offer(event)) {
+                if (closed) {
+                    return false;
+                }
+                LockSupport.unpark(thread);
+                try {
+                    // timed in case a slot is freed between the failed offer and the logging thread checking for blocked producers
+                    notFull.awaitNanos(IDLE_WAIT);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            return true;
+        } finally {
+            blocked--;
+            lock.unlock();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void signalNotFull() {
+        lock.lock();
+        try {
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            if (deliverAll()) {
+                continue;
+            }
+            reportDropped();
+            if (closed) {
+                return;
+            }
+            waiting = true;
+            // recheck after announcing the wait so an event added concurrently is not left until the next wake-up
+            if (!deliverAll()) {
+                LockSupport.parkNanos(this, IDLE_WAIT);
+            }
+            waiting = false;
+        }
+    }
+
+    private boolean deliverAll() {
+        boolean delivered = false;
+        Event event;
+        while ((event = buffer.poll()) != null) {
+            delivered = true;
+            if (blocked > 0) {
+                signalNotFull();
+            }
+            try {
+                super.dispatch(event.level, event.message, event.args);
+            } catch (RuntimeException e) {
+                // do not let a failing message format or logger stop the logging thread
+                logger.debug("Error logging monitor event", e);
+            }
+        }
+        return delivered;
+    }
+
+    private void reportDropped() {
+        long count = dropped.getAndSet(0);
+        if (count > 0) {
+            logger.warn(count + " monitor events were dropped because the event buffer was full");
+        }
+    }
+
+    private static class Event {
+        private MonitorLevel level;
+        private String message;
+        private Object[] args;
+
+        private Event(MonitorLevel level, String message, Object[] args) {
+            this.level = level;
+            this.message = message;
+            this.args = args;
+        }
+    }
+}
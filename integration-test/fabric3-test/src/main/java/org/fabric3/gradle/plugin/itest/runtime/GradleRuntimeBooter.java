@@ -38,8 +38,33 @@ import org.fabric3.plugin.runtime.PluginHostInfoImpl;
 public class GradleRuntimeBooter extends AbstractPluginRuntimeBooter {
     private static final String PLUGIN_RUNTIME_IMPL = "org.fabric3.plugin.runtime.impl.PluginRuntimeImpl";
 
-    public GradleRuntimeBooter(PluginBootConfiguration configuration) {
+    private File tempDir;
+    private String environment;
+    private HostInfoBinding hostInfo;
+
+    /**
+     * Constructor.
+     *
+     * @param configuration the boot configuration
+     * @param tempDir       the scratch directory private to the runtime instance
+     */
+    public GradleRuntimeBooter(PluginBootConfiguration configuration, File tempDir) {
         super(configuration);
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * Loads the runtime implementation class in the boot classloader ahead of booting, so that the runtime archives are opened and the class is loaded
+     * while extensions are still being resolved. Only this classloading overlaps with resolution; the runtime boots once all extensions are resolved.
+     *
+     * @param bootClassLoader the boot classloader
+     */
+    public static void preload(ClassLoader bootClassLoader) {
+        try {
+            Class.forName(PLUGIN_RUNTIME_IMPL, false, bootClassLoader);
+        } catch (ClassNotFoundException e) {
+            // ignore; the error is reported when the runtime boots
+        }
     }
 
     protected String getPluginClass() {
@@ -52,9 +77,24 @@ public class GradleRuntimeBooter extends AbstractPluginRuntimeBooter {
         return exportedPackages;
     }
 
+    /**
+     * Binds the booted runtime to the build directories and module dependencies of another project so that its test composite can be deployed.
+     *
+     * @param moduleDependencies the module dependencies of the project
+     * @param outputDirectory    the project output directory
+     * @param buildDir           the project build directory
+     */
+    public void bind(Set<URL> moduleDependencies, File outputDirectory, File buildDir) {
+        hostInfo.bind(newHostInfo(environment, moduleDependencies, outputDirectory, buildDir));
+    }
+
     protected PluginHostInfo createHostInfo(String environment, Set<URL> moduleDependencies, File outputDirectory, File buildDir) {
-        File tempDir = new File(System.getProperty("java.io.tmpdir"), ".f3");
+        this.environment = environment;
+        hostInfo = new HostInfoBinding(newHostInfo(environment, moduleDependencies, outputDirectory, buildDir));
+        return hostInfo.createProxy();
+    }
 
+    private PluginHostInfo newHostInfo(String environment, Set<URL> moduleDependencies, File outputDirectory, File buildDir) {
         URI domain = URI.create(PluginConstants.DOMAIN);
         File baseDir = new File(outputDirectory, "main");
         OperatingSystem os = BootstrapHelper.getOperatingSystem();
@@ -0,0 +1,72 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.runtime;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.fabric3.plugin.api.runtime.PluginHostInfo;
+
+/**
+ * Binds a runtime to the host info of the project it is deploying.
+ *
+ * The runtime is given a proxy that delegates to the currently bound host info, so a pooled runtime can be rebound to the build directories and module
+ * dependencies of each project that uses it.
+ */
+class HostInfoBinding implements InvocationHandler {
+    private volatile PluginHostInfo hostInfo;
+
+    public HostInfoBinding(PluginHostInfo hostInfo) {
+        this.hostInfo = hostInfo;
+    }
+
+    /**
+     * Creates a proxy that delegates to the bound host info.
+     *
+     * @return the proxy
+     */
+    public PluginHostInfo createProxy() {
+        return (PluginHostInfo) Proxy.newProxyInstance(PluginHostInfo.class.getClassLoader(), new Class<?>[]{PluginHostInfo.class}, this);
+    }
+
+    /**
+     * Binds the proxy to the host info of another project.
+     *
+     * @param hostInfo the host info
+     */
+    public void bind(PluginHostInfo hostInfo) {
+        this.hostInfo = hostInfo;
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            // the proxy has a stable identity across bindings
+            if ("equals".equals(method.getName())) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(method.getName())) {
+                return System.identityHashCode(proxy);
+            }
+        }
+        try {
+            return method.invoke(hostInfo, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
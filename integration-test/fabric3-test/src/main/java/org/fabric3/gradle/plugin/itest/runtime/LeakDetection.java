@@ -0,0 +1,38 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.runtime;
+
+/**
+ * Determines whether classloaders and threads leaked by a runtime are checked for after it has shut down.
+ */
+public enum LeakDetection {
+
+    /**
+     * No check is made.
+     */
+    OFF,
+
+    /**
+     * Leaks are logged as warnings.
+     */
+    WARN,
+
+    /**
+     * Leaks are logged and fail the task.
+     */
+    FAIL
+}
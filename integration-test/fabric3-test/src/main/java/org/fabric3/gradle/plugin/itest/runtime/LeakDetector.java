@@ -0,0 +1,284 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.runtime;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.security.Provider;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Checks that a runtime released its classloaders and threads after it was shut down.
+ *
+ * Classloaders are tracked through weak references so the detector does not keep them reachable. Threads alive when the detector is created are ignored,
+ * and later threads are only attributed to the runtime if their context classloader or class was loaded by a tracked classloader, so threads started by
+ * other tasks running concurrently in the same Gradle daemon are not reported. If a tracked classloader is not collected, well-known JVM-wide roots are searched for references to it: threads started by the runtime, thread-local
+ * values, shutdown hooks, security providers and MBeans. A heap dump is needed to find retaining paths through other roots.
+ */
+public class LeakDetector {
+    private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(5);
+    private static final long INTERVAL = 100;
+    private static final int MAX_FRAMES = 8;
+
+    private Set<Long> existingThreads = new HashSet<>();
+    private Map<String, WeakReference<ClassLoader>> classLoaders = new LinkedHashMap<>();
+
+    /**
+     * Constructor. Records the threads that are alive so they are not reported.
+     */
+    public LeakDetector() {
+        for (Thread thread : getThreads()) {
+            existingThreads.add(thread.getId());
+        }
+    }
+
+    /**
+     * Tracks a classloader that must be collected after the runtime has shut down.
+     *
+     * @param name        the name used to report the classloader
+     * @param classLoader the classloader
+     */
+    public void track(String name, ClassLoader classLoader) {
+        if (classLoader != null) {
+            classLoaders.put(name, new WeakReference<>(classLoader));
+        }
+    }
+
+    /**
+     * Waits a bounded amount of time for tracked classloaders to be collected and threads started by the runtime to stop. The runtime and all references
+     * to its classloaders held by the caller must have been released.
+     *
+     * @return descriptions of the leaks found or an empty list
+     */
+    public List<String> verify() {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (true) {
+            System.gc();
+            if (!hasLiveClassLoaders() && findThreads().isEmpty()) {
+                return new ArrayList<>();
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                break;
+            }
+            try {
+                Thread.sleep(INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return describeLeaks();
+    }
+
+    private boolean hasLiveClassLoaders() {
+        for (Reference<ClassLoader> reference : classLoaders.values()) {
+            if (reference.get() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<String> describeLeaks() {
+        List<String> leaks = new ArrayList<>();
+        for (Thread thread : findThreads()) {
+            StringBuilder builder = new StringBuilder();
+            builder.append("Thread \"").append(thread.getName()).append("\" (").append(thread.isDaemon() ? "daemon" : "non-daemon").append(", ");
+            builder.append(thread.getState()).append(") is still running");
+            String retained = getRetainedName(thread.getContextClassLoader());
+            if (retained != null) {
+                builder.append(" and retains the ").append(retained).append(" as its context classloader");
+            } else {
+                retained = getRetainedName(thread.getClass().getClassLoader());
+                if (retained != null) {
+                    builder.append(" and retains the ").append(retained).append(" through its class ").append(thread.getClass().getName());
+                }
+            }
+            appendFrames(builder, thread.getStackTrace());
+            leaks.add(builder.toString());
+        }
+        int threadLeaks = leaks.size();
+        for (Map.Entry<String, WeakReference<ClassLoader>> entry : classLoaders.entrySet()) {
+            if (entry.getValue().get() != null) {
+                leaks.add("The " + entry.getKey() + " was not garbage collected");
+            }
+        }
+        if (leaks.size() == threadLeaks) {
+            return leaks;
+        }
+        int classLoaderLeaks = leaks.size();
+        findThreadLocals(leaks);
+        findShutdownHooks(leaks);
+        findSecurityProviders(leaks);
+        findMBeans(leaks);
+        if (leaks.size() == classLoaderLeaks && threadLeaks == 0) {
+            leaks.add("No reference was found from threads, thread locals, shutdown hooks, security providers or MBeans; take a heap dump to find the "
+                      + "retaining path");
+        }
+        return leaks;
+    }
+
+    /**
+     * Returns threads started after the detector was created that reference a tracked classloader.
+     */
+    private List<Thread> findThreads() {
+        List<Thread> threads = new ArrayList<>();
+        Thread current = Thread.currentThread();
+        for (Thread thread : getThreads()) {
+            if (thread == current || !thread.isAlive() || existingThreads.contains(thread.getId())) {
+                continue;
+            }
+            if (getRetainedName(thread.getContextClassLoader()) != null || getRetainedName(thread.getClass().getClassLoader()) != null) {
+                threads.add(thread);
+            }
+        }
+        return threads;
+    }
+
+    private void findThreadLocals(List<String> leaks) {
+        try {
+            Field threadLocalsField = Thread.class.getDeclaredField("threadLocals");
+            threadLocalsField.setAccessible(true);
+            for (Thread thread : getThreads()) {
+                Object map = threadLocalsField.get(thread);
+                if (map == null) {
+                    continue;
+                }
+                Field tableField = map.getClass().getDeclaredField("table");
+                tableField.setAccessible(true);
+                for (Object entry : (Object[]) tableField.get(map)) {
+                    if (entry == null) {
+                        continue;
+                    }
+                    Field valueField = entry.getClass().getDeclaredField("value");
+                    valueField.setAccessible(true);
+                    Object value = valueField.get(entry);
+                    String retained = getRetainedName(value);
+                    if (retained != null) {
+                        leaks.add("A thread-local value of type " + value.getClass().getName() + " in thread \"" + thread.getName() + "\" retains the "
+                                  + retained);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // thread internals are not accessible on this JVM
+            leaks.add("Thread-local values could not be checked: " + e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void findShutdownHooks(List<String> leaks) {
+        try {
+            Class<?> hooksClass = Class.forName("java.lang.ApplicationShutdownHooks");
+            Field hooksField = hooksClass.getDeclaredField("hooks");
+            hooksField.setAccessible(true);
+            Map<Thread, Thread> hooks;
+            synchronized (hooksClass) {
+                hooks = new LinkedHashMap<>((Map<Thread, Thread>) hooksField.get(null));
+            }
+            for (Thread hook : hooks.keySet()) {
+                String retained = getRetainedName(hook);
+                if (retained == null) {
+                    retained = getRetainedName(hook.getContextClassLoader());
+                }
+                if (retained != null) {
+                    leaks.add("Shutdown hook \"" + hook.getName() + "\" of type " + hook.getClass().getName() + " retains the " + retained);
+                }
+            }
+        } catch (Exception e) {
+            // shutdown hooks are not accessible on this JVM
+            leaks.add("Shutdown hooks could not be checked: " + e);
+        }
+    }
+
+    private void findSecurityProviders(List<String> leaks) {
+        for (Provider provider : Security.getProviders()) {
+            String retained = getRetainedName(provider);
+            if (retained != null) {
+                leaks.add("Security provider " + provider.getName() + " retains the " + retained);
+            }
+        }
+    }
+
+    private void findMBeans(List<String> leaks) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : server.queryNames(null, null)) {
+            try {
+                String retained = getRetainedName(server.getClassLoaderFor(name));
+                if (retained != null) {
+                    leaks.add("MBean " + name + " retains the " + retained);
+                }
+            } catch (Exception e) {
+                // the MBean was unregistered
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the tracked classloader retained by an object, either because it is or descends from the classloader or its class was loaded by
+     * one.
+     */
+    private String getRetainedName(Object object) {
+        if (object == null) {
+            return null;
+        }
+        ClassLoader classLoader = object instanceof ClassLoader ? (ClassLoader) object : object.getClass().getClassLoader();
+        for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) {
+            for (Map.Entry<String, WeakReference<ClassLoader>> entry : classLoaders.entrySet()) {
+                if (entry.getValue().get() == loader) {
+                    return entry.getKey();
+                }
+            }
+        }
+        return null;
+    }
+
+    private void appendFrames(StringBuilder builder, StackTraceElement[] frames) {
+        for (int i = 0; i < frames.length && i < MAX_FRAMES; i++) {
+            builder.append("\n        at ").append(frames[i]);
+        }
+        if (frames.length > MAX_FRAMES) {
+            builder.append("\n        ...");
+        }
+    }
+
+    private Thread[] getThreads() {
+        ThreadGroup group = Thread.currentThread().getThreadGroup();
+        while (group.getParent() != null) {
+            group = group.getParent();
+        }
+        Thread[] threads = new Thread[group.activeCount() + 16];
+        int count;
+        while ((count = group.enumerate(threads, true)) == threads.length) {
+            threads = new Thread[threads.length * 2];
+        }
+        Thread[] result = new Thread[count];
+        System.arraycopy(threads, 0, result, 0, count);
+        return result;
+    }
+}
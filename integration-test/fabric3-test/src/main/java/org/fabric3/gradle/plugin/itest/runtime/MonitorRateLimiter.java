@@ -0,0 +1,188 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.runtime;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.fabric3.api.annotation.monitor.MonitorLevel;
+
+/**
+ * Limits the number of monitor events logged per second for each combination of event source and message template.
+ *
+ * Events over the limit are counted rather than logged. The count is returned when the next event for the source and template is permitted, or by
+ * {@link #drain()}, so that a summary of the suppressed events can be logged. At most {@link #MAX_WINDOWS} combinations are tracked; idle ones are evicted
+ * to make room and events for further combinations are not limited.
+ */
+class MonitorRateLimiter {
+    static final long SUPPRESSED = -1;
+    static final int MAX_WINDOWS = 1024;
+
+    private static final long EVICTED = -2;
+    private static final long INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private int limit;
+    private ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param limit the number of events permitted per second for a source and message template
+     */
+    MonitorRateLimiter(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Determines whether an event may be logged.
+     *
+     * @param level   the event level
+     * @param source  the event source
+     * @param message the unformatted message
+     * @return {@link #SUPPRESSED} if the event must not be logged, otherwise the number of events suppressed since the last permitted event
+     */
+    long acquire(MonitorLevel level, String source, String message) {
+        source = source != null ? source : "";
+        message = message != null ? message : "";
+        String key = source + '\u0000' + message;
+        while (true) {
+            long now = System.nanoTime();
+            Window window = windows.get(key);
+            if (window == null) {
+                if (windows.size() >= MAX_WINDOWS && !evict(now)) {
+                    return 0;
+                }
+                window = new Window(source, message);
+                Window existing = windows.putIfAbsent(key, window);
+                if (existing != null) {
+                    window = existing;
+                }
+            }
+            long result = window.acquire(level, now);
+            if (result != EVICTED) {
+                return result;
+            }
+            // the window was evicted concurrently; retry with a new one
+        }
+    }
+
+    /**
+     * Returns the events suppressed since they were last reported and resets their counts.
+     *
+     * @return the suppressed events
+     */
+    List<Suppression> drain() {
+        List<Suppression> suppressions = new ArrayList<>();
+        for (Window window : windows.values()) {
+            Suppression suppression = window.drain();
+            if (suppression != null) {
+                suppressions.add(suppression);
+            }
+        }
+        return suppressions;
+    }
+
+    /**
+     * Removes windows that have expired without suppressing events.
+     *
+     * @param now the current time
+     * @return true if there is room for another window
+     */
+    private synchronized boolean evict(long now) {
+        Iterator<Window> iterator = windows.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().evict(now)) {
+                iterator.remove();
+            }
+        }
+        return windows.size() < MAX_WINDOWS;
+    }
+
+    /**
+     * Events suppressed for a source and message template.
+     */
+    static class Suppression {
+        final MonitorLevel level;
+        final String source;
+        final String message;
+        final long count;
+
+        private Suppression(MonitorLevel level, String source, String message, long count) {
+            this.level = level;
+            this.source = source;
+            this.message = message;
+            this.count = count;
+        }
+    }
+
+    /**
+     * A fixed one second window for a source and message template.
+     */
+    private class Window {
+        private String source;
+        private String message;
+        private MonitorLevel level;
+        private long start = System.nanoTime();
+        private int count;
+        private long suppressed;
+        private boolean evicted;
+
+        private Window(String source, String message) {
+            this.source = source;
+            this.message = message;
+        }
+
+        private synchronized long acquire(MonitorLevel level, long now) {
+            if (evicted) {
+                return EVICTED;
+            }
+            if (now - start >= INTERVAL) {
+                start = now;
+                count = 0;
+            }
+            if (count < limit) {
+                count++;
+                long previous = suppressed;
+                suppressed = 0;
+                return previous;
+            }
+            this.level = level;
+            suppressed++;
+            return SUPPRESSED;
+        }
+
+        private synchronized boolean evict(long now) {
+            if (now - start >= INTERVAL && suppressed == 0) {
+                evicted = true;
+            }
+            return evicted;
+        }
+
+        private synchronized Suppression drain() {
+            if (suppressed == 0) {
+                return null;
+            }
+            Suppression suppression = new Suppression(level, source, message, suppressed);
+            suppressed = 0;
+            return suppression;
+        }
+    }
+}
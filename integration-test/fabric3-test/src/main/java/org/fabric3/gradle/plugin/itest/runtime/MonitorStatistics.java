@@ -0,0 +1,125 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.runtime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.fabric3.api.annotation.monitor.MonitorLevel;
+import org.gradle.api.logging.Logger;
+
+/**
+ * Counts monitor events by source and level, including events at levels that are not logged, to help identify noisy components.
+ */
+public class MonitorStatistics {
+    private static final int MAX_SOURCES = 20;
+    private static final MonitorLevel[] LEVELS = MonitorLevel.values();
+
+    private ConcurrentMap<String, AtomicLongArray> counts = new ConcurrentHashMap<>();
+
+    /**
+     * Counts an event.
+     *
+     * @param source the event source
+     * @param level  the event level
+     */
+    public void record(String source, MonitorLevel level) {
+        source = source != null ? source : "";
+        AtomicLongArray sourceCounts = counts.get(source);
+        if (sourceCounts == null) {
+            sourceCounts = new AtomicLongArray(LEVELS.length);
+            AtomicLongArray existing = counts.putIfAbsent(source, sourceCounts);
+            if (existing != null) {
+                sourceCounts = existing;
+            }
+        }
+        sourceCounts.incrementAndGet(level.ordinal());
+    }
+
+    /**
+     * Returns the number of events counted for a source and level.
+     *
+     * @param source the event source
+     * @param level  the event level
+     * @return the number of events
+     */
+    public long getCount(String source, MonitorLevel level) {
+        AtomicLongArray sourceCounts = counts.get(source);
+        return sourceCounts != null ? sourceCounts.get(level.ordinal()) : 0;
+    }
+
+    /**
+     * Logs a table of event counts for the noisiest sources.
+     *
+     * @param logger the logger
+     */
+    public void log(Logger logger) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        List<Row> rows = new ArrayList<>();
+        int width = "Source".length();
+        for (Map.Entry<String, AtomicLongArray> entry : counts.entrySet()) {
+            Row row = new Row(entry.getKey(), entry.getValue());
+            rows.add(row);
+            width = Math.max(width, row.source.length());
+        }
+        Collections.sort(rows, new Comparator<Row>() {
+            public int compare(Row first, Row second) {
+                int result = Long.compare(second.total, first.total);
+                return result != 0 ? result : first.source.compareTo(second.source);
+            }
+        });
+        StringBuilder builder = new StringBuilder("Monitor events by source:\n");
+        builder.append(String.format("%-" + width + "s", "Source"));
+        for (MonitorLevel level : LEVELS) {
+            builder.append(String.format(" %10s", level));
+        }
+        builder.append(String.format(" %10s%n", "TOTAL"));
+        for (Row row : rows.subList(0, Math.min(MAX_SOURCES, rows.size()))) {
+            builder.append(String.format("%-" + width + "s", row.source));
+            for (long count : row.counts) {
+                builder.append(String.format(" %10d", count));
+            }
+            builder.append(String.format(" %10d%n", row.total));
+        }
+        if (rows.size() > MAX_SOURCES) {
+            builder.append("... ").append(rows.size() - MAX_SOURCES).append(" more sources").append(System.lineSeparator());
+        }
+        logger.lifecycle(builder.toString());
+    }
+
+    private static class Row {
+        private String source;
+        private long[] counts = new long[LEVELS.length];
+        private long total;
+
+        private Row(String source, AtomicLongArray sourceCounts) {
+            this.source = source;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = sourceCounts.get(i);
+                total = total + counts[i];
+            }
+        }
+    }
+}
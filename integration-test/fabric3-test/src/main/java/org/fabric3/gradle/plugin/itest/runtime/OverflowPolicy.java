@@ -0,0 +1,33 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.runtime;
+
+/**
+ * Determines what happens when a monitor event is raised and the event buffer is full.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * The thread raising the event waits until there is space in the buffer.
+     */
+    BLOCK,
+
+    /**
+     * The event is discarded. The number of discarded events is logged when the buffer is next drained.
+     */
+    DROP
+}
@@ -19,16 +19,47 @@ package org.fabric3.gradle.plugin.itest.runtime;
 import org.fabric3.api.annotation.monitor.MonitorLevel;
 import org.fabric3.api.host.monitor.DestinationRouter;
 import org.fabric3.api.host.monitor.MessageFormatter;
+import org.fabric3.gradle.plugin.api.test.OutputCapture;
+import org.fabric3.gradle.plugin.api.test.TestFailure;
 import org.gradle.api.logging.Logger;
 
 /**
- * Forwards monitor events to the Gradle logger.
+ * Forwards monitor events to the Gradle logger. Events raised on a thread that is capturing test output are added to the capture instead.
+ *
+ * Log levels are checked before a message is formatted so disabled events cost no more than the check. If a rate limit is set, repeats of a message
+ * template from the same source over the limit are not logged and a count of the suppressed events is logged instead.
  */
 public class PluginDestinationRouter implements DestinationRouter {
-    private Logger logger;
+    private static final String SUPPRESSED_MESSAGE = "{0} similar monitor events from {1} were suppressed: {2}";
+
+    protected Logger logger;
+    private MonitorRateLimiter limiter;
+    private volatile MonitorStatistics statistics;
 
     public PluginDestinationRouter(Logger logger) {
+        this(logger, 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param logger    the logger
+     * @param rateLimit the number of events logged per second for a source and message template or 0 for no limit
+     */
+    public PluginDestinationRouter(Logger logger, int rateLimit) {
         this.logger = logger;
+        if (rateLimit > 0) {
+            limiter = new MonitorRateLimiter(rateLimit);
+        }
+    }
+
+    /**
+     * Sets the statistics that events are counted in or null to stop counting.
+     *
+     * @param statistics the statistics or null
+     */
+    public void setStatistics(MonitorStatistics statistics) {
+        this.statistics = statistics;
     }
 
     public int getDestinationIndex(String name) {
@@ -36,39 +67,109 @@ public class PluginDestinationRouter implements DestinationRouter {
     }
 
     public void send(MonitorLevel level, int destinationIndex, long timestamp, String source, String message, boolean parse, Object... args) {
-        message = MessageFormatter.format(message, args);
+        MonitorStatistics statistics = this.statistics;
+        if (statistics != null) {
+            statistics.record(source, level);
+        }
+        if (!isEnabled(level)) {
+            return;
+        }
+        OutputCapture capture = OutputCapture.current();
+        if (capture != null) {
+            // captured output is bounded per test, so it is not rate limited
+            capture(capture, level, MessageFormatter.format(message, args), args);
+            return;
+        }
+        if (limiter != null) {
+            long suppressed = limiter.acquire(level, source, message);
+            if (suppressed == MonitorRateLimiter.SUPPRESSED) {
+                return;
+            }
+            if (suppressed > 0) {
+                dispatch(level, SUPPRESSED_MESSAGE, new Object[]{suppressed, source, message});
+            }
+        }
+        dispatch(level, message, args);
+    }
+
+    /**
+     * Logs counts of events that were suppressed by the rate limit and have not been reported yet.
+     */
+    public void flushSuppressed() {
+        if (limiter == null) {
+            return;
+        }
+        for (MonitorRateLimiter.Suppression suppression : limiter.drain()) {
+            dispatch(suppression.level, SUPPRESSED_MESSAGE, new Object[]{suppression.count, suppression.source, suppression.message});
+        }
+    }
 
+    /**
+     * Logs outstanding suppressed event counts and releases resources held by the router after the runtime has shut down.
+     */
+    public void close() {
+        flushSuppressed();
+    }
+
+    /**
+     * Formats and logs an event that is enabled for logging.
+     *
+     * @param level   the event level
+     * @param message the unformatted message
+     * @param args    the message arguments
+     */
+    protected void dispatch(MonitorLevel level, String message, Object[] args) {
+        message = MessageFormatter.format(message, args);
         if (MonitorLevel.SEVERE == level) {
-            if (logger.isErrorEnabled()) {
-                Throwable e = null;
-                for (Object o : args) {
-                    if (o instanceof Throwable) {
-                        e = (Throwable) o;
-                    }
-                }
-                if (message != null) {
-                    logger.error(message, e);
-                } else {
-                    logger.error(e.getMessage(), e);
-                }
+            Throwable e = getThrowable(args);
+            if (message != null) {
+                logger.error(message, e);
+            } else {
+                logger.error(e.getMessage(), e);
             }
         } else if (MonitorLevel.WARNING == level) {
-            if (logger.isWarnEnabled()) {
-                logger.warn(message);
-            }
+            logger.warn(message);
         } else if (MonitorLevel.INFO == level) {
-            if (logger.isInfoEnabled()) {
-                logger.lifecycle(message);
-            }
-        } else if (MonitorLevel.DEBUG == level) {
-            if (logger.isDebugEnabled()) {
-                logger.debug(message);
+            logger.lifecycle(message);
+        } else {
+            logger.debug(message);
+        }
+    }
+
+    private boolean isEnabled(MonitorLevel level) {
+        if (MonitorLevel.SEVERE == level) {
+            return logger.isErrorEnabled();
+        } else if (MonitorLevel.WARNING == level) {
+            return logger.isWarnEnabled();
+        } else if (MonitorLevel.INFO == level) {
+            return logger.isInfoEnabled();
+        } else {
+            return logger.isDebugEnabled();
+        }
+    }
+
+    private void capture(OutputCapture capture, MonitorLevel level, String message, Object... args) {
+        if (MonitorLevel.SEVERE == level) {
+            Throwable e = getThrowable(args);
+            capture.println("[" + level + "] " + (message != null ? message : String.valueOf(e)), true);
+            if (e != null) {
+                capture.println(TestFailure.from(e).getStackTrace(), true);
             }
-        } else if (MonitorLevel.TRACE == level) {
-            if (logger.isDebugEnabled()) {
-                logger.debug(message);
+        } else if (MonitorLevel.WARNING == level) {
+            capture.println("[" + level + "] " + message, true);
+        } else {
+            capture.println("[" + level + "] " + message, false);
+        }
+    }
+
+    private Throwable getThrowable(Object[] args) {
+        Throwable e = null;
+        for (Object o : args) {
+            if (o instanceof Throwable) {
+                e = (Throwable) o;
             }
         }
+        return e;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,103 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.runtime;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Set;
+
+import org.fabric3.gradle.plugin.itest.cache.Directories;
+import org.fabric3.plugin.api.runtime.PluginRuntime;
+import org.gradle.api.logging.Logger;
+
+/**
+ * A booted runtime and the resources needed to shut it down.
+ */
+public class PooledRuntime {
+    private GradleRuntimeBooter booter;
+    private PluginRuntime runtime;
+    private ClassLoader bootClassLoader;
+    private File tempDir;
+    private PluginDestinationRouter router;
+    private LeakDetector leakDetector;
+
+    public PooledRuntime(GradleRuntimeBooter booter,
+                         PluginRuntime runtime,
+                         ClassLoader bootClassLoader,
+                         File tempDir,
+                         PluginDestinationRouter router,
+                         LeakDetector leakDetector) {
+        this.booter = booter;
+        this.runtime = runtime;
+        this.bootClassLoader = bootClassLoader;
+        this.tempDir = tempDir;
+        this.router = router;
+        this.leakDetector = leakDetector;
+    }
+
+    /**
+     * Binds the runtime to the build directories and module dependencies of the project whose tests it runs next.
+     *
+     * @param moduleDependencies the module dependencies of the project
+     * @param outputDirectory    the project output directory
+     * @param buildDir           the project build directory
+     */
+    public void bind(Set<URL> moduleDependencies, File outputDirectory, File buildDir) {
+        booter.bind(moduleDependencies, outputDirectory, buildDir);
+    }
+
+    public PluginRuntime getRuntime() {
+        return runtime;
+    }
+
+    public PluginDestinationRouter getRouter() {
+        return router;
+    }
+
+    public ClassLoader getBootClassLoader() {
+        return bootClassLoader;
+    }
+
+    /**
+     * Returns the detector for leaks from the runtime or null if leaks are not checked for.
+     *
+     * @return the detector or null
+     */
+    public LeakDetector getLeakDetector() {
+        return leakDetector;
+    }
+
+    /**
+     * Shuts down the runtime, waiting a bounded amount of time, flushes monitor events and removes its scratch directory. References to the runtime and
+     * its classloaders are released so they can be collected.
+     *
+     * @param timeout the maximum time in seconds to wait for shutdown to complete
+     * @param logger  the logger
+     * @return true if the runtime shut down within the timeout
+     */
+    public boolean shutdown(long timeout, Logger logger) {
+        boolean stopped = RuntimeShutdown.shutdown(booter, bootClassLoader, timeout, logger);
+        router.close();
+        if (stopped) {
+            Directories.delete(tempDir);
+        }
+        booter = null;
+        runtime = null;
+        bootClassLoader = null;
+        return stopped;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.runtime;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gradle.BuildAdapter;
+import org.gradle.BuildResult;
+import org.gradle.api.Project;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.plugins.ExtraPropertiesExtension;
+
+/**
+ * Holds booted runtimes for reuse by test tasks in the same build.
+ *
+ * Runtimes are keyed by a configuration fingerprint so a runtime is only handed to a task whose runtime classpath, extensions, profiles and system
+ * configuration are identical. Runtimes are shared between projects; a task binds the runtime it acquires to its own build directories and module
+ * dependencies before deploying. A runtime is leased to one task at a time; tasks running in parallel boot their own runtime, which is returned to the
+ * pool when the task completes. All pooled runtimes are shut down when the build finishes.
+ */
+public class RuntimePool {
+    private static final String POOL_PROPERTY = "fabric3RuntimePool";
+
+    private long shutdownTimeout;
+    private Logger logger;
+    private Map<String, Deque<PooledRuntime>> idle = new HashMap<>();
+
+    /**
+     * Returns the pool for the build the project belongs to, creating it if necessary.
+     *
+     * @param project         the project
+     * @param shutdownTimeout the maximum time in seconds to wait for each pooled runtime to shut down at the end of the build
+     * @return the pool
+     */
+    public static RuntimePool getPool(Project project, long shutdownTimeout) {
+        Project rootProject = project.getRootProject();
+        ExtraPropertiesExtension properties = rootProject.getExtensions().getExtraProperties();
+        synchronized (RuntimePool.class) {
+            if (properties.has(POOL_PROPERTY)) {
+                return (RuntimePool) properties.get(POOL_PROPERTY);
+            }
+            final RuntimePool pool = new RuntimePool(shutdownTimeout, rootProject.getLogger());
+            properties.set(POOL_PROPERTY, pool);
+            project.getGradle().addBuildListener(new BuildAdapter() {
+                public void buildFinished(BuildResult result) {
+                    pool.shutdown();
+                }
+            });
+            return pool;
+        }
+    }
+
+    private RuntimePool(long shutdownTimeout, Logger logger) {
+        this.shutdownTimeout = shutdownTimeout;
+        this.logger = logger;
+    }
+
+    /**
+     * Leases an idle runtime for the configuration.
+     *
+     * @param key the configuration fingerprint
+     * @return the runtime or null if no idle runtime is available
+     */
+    public synchronized PooledRuntime acquire(String key) {
+        Deque<PooledRuntime> runtimes = idle.get(key);
+        if (runtimes == null) {
+            return null;
+        }
+        return runtimes.pollFirst();
+    }
+
+    /**
+     * Returns a leased runtime to the pool.
+     *
+     * @param key     the configuration fingerprint
+     * @param runtime the runtime
+     */
+    public synchronized void release(String key, PooledRuntime runtime) {
+        Deque<PooledRuntime> runtimes = idle.get(key);
+        if (runtimes == null) {
+            runtimes = new ArrayDeque<>();
+            idle.put(key, runtimes);
+        }
+        runtimes.addFirst(runtime);
+    }
+
+    /**
+     * Shuts down all idle runtimes.
+     */
+    public void shutdown() {
+        List<PooledRuntime> runtimes = new ArrayList<>();
+        synchronized (this) {
+            for (Deque<PooledRuntime> deque : idle.values()) {
+                runtimes.addAll(deque);
+            }
+            idle.clear();
+        }
+        List<LeakDetector> leakDetectors = new ArrayList<>();
+        for (PooledRuntime runtime : runtimes) {
+            if (runtime.shutdown(shutdownTimeout, logger) && runtime.getLeakDetector() != null) {
+                leakDetectors.add(runtime.getLeakDetector());
+            }
+        }
+        runtimes.clear();
+        // the build has finished, so leaks are logged rather than failing a task
+        for (LeakDetector leakDetector : leakDetectors) {
+            for (String leak : leakDetector.verify()) {
+                logger.warn("Fabric3 runtime leak: " + leak);
+            }
+        }
+    }
+
+}
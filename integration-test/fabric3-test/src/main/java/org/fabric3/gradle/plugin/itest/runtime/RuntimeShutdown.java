@@ -0,0 +1,90 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.runtime;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+import org.gradle.api.logging.Logger;
+
+/**
+ * Shuts down a runtime on a separate thread, waiting a bounded amount of time for it to complete.
+ *
+ * If the runtime does not stop within the timeout, a thread dump is logged to help diagnose the component that is blocking and the shutdown thread is
+ * abandoned. The shutdown thread is a daemon so that it does not prevent the Gradle process from exiting.
+ */
+public class RuntimeShutdown {
+
+    /**
+     * Shuts down the runtime.
+     *
+     * @param booter      the runtime booter
+     * @param classLoader the context classloader to set on the shutdown thread
+     * @param timeout     the maximum time in seconds to wait for shutdown to complete
+     * @param logger      the logger
+     * @return true if the runtime shut down within the timeout
+     */
+    public static boolean shutdown(final GradleRuntimeBooter booter, ClassLoader classLoader, long timeout, final Logger logger) {
+        Thread thread = new Thread("fabric3-shutdown") {
+            public void run() {
+                try {
+                    booter.shutdown();
+                } catch (Exception e) {
+                    logger.debug("Error shutting down Fabric3 runtime", e);
+                }
+            }
+        };
+        thread.setDaemon(true);
+        thread.setContextClassLoader(classLoader);
+        thread.start();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(timeout));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!thread.isAlive()) {
+            return true;
+        }
+        logger.warn("Fabric3 runtime did not shut down within " + timeout + " seconds. Thread dump:\n" + threadDump());
+        return false;
+    }
+
+    private static String threadDump() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        StringBuilder builder = new StringBuilder();
+        for (ThreadInfo info : bean.dumpAllThreads(bean.isObjectMonitorUsageSupported(), bean.isSynchronizerUsageSupported())) {
+            builder.append('"').append(info.getThreadName()).append("\" ").append(info.getThreadState());
+            if (info.getLockName() != null) {
+                builder.append(" on ").append(info.getLockName());
+            }
+            if (info.getLockOwnerName() != null) {
+                builder.append(" owned by \"").append(info.getLockOwnerName()).append('"');
+            }
+            builder.append('\n');
+            for (StackTraceElement element : info.getStackTrace()) {
+                builder.append("    at ").append(element).append('\n');
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    private RuntimeShutdown() {
+    }
+}
@@ -34,6 +34,14 @@ public abstract class AbstractStopWatch implements StopWatch {
         splits.put(markers, now);
     }
 
+    public Span begin(String name) {
+        return NoOpSpan.INSTANCE;
+    }
+
+    public void record(String name, String category, String thread, long startTime, long elapsedTime) {
+        // spans are not recorded by default
+    }
+
     public void stop() {
         end = System.nanoTime();
     }
@@ -15,6 +15,14 @@ public class NoOpStopWatch implements StopWatch {
 
     }
 
+    public Span begin(String name) {
+        return NoOpSpan.INSTANCE;
+    }
+
+    public void record(String name, String category, String thread, long startTime, long elapsedTime) {
+
+    }
+
     public void stop() {
 
     }
@@ -0,0 +1,13 @@
+package org.fabric3.gradle.plugin.itest.stopwatch;
+
+/**
+ * A timed section of work on a thread. Spans begun while another span is open on the same thread are nested within it.
+ */
+public interface Span {
+
+    /**
+     * Ends the span.
+     */
+    void end();
+
+}
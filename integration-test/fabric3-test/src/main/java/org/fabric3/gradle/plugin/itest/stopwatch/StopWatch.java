@@ -5,7 +5,8 @@ import java.util.Map;
 /**
  * A stopwatch that measures elapsed time.
  *
- * Note implementations are not thread-safe.
+ * Note implementations are not thread-safe with the exception of {@link #begin(String)} and {@link #record(String, String, String, long, long)}, which
+ * may be called from any thread.
  */
 public interface StopWatch {
 
@@ -22,6 +23,25 @@ public interface StopWatch {
      */
     void split(String... markers);
 
+    /**
+     * Begins a span on the current thread.
+     *
+     * @param name the span name
+     * @return the span, which must be ended by the caller
+     */
+    Span begin(String name);
+
+    /**
+     * Records a span that was timed elsewhere, such as a test executed in the runtime.
+     *
+     * @param name        the span name
+     * @param category    the span category
+     * @param thread      the name of the thread the work was performed on
+     * @param startTime   the start time in milliseconds since the epoch
+     * @param elapsedTime the elapsed time in milliseconds
+     */
+    void record(String name, String category, String thread, long startTime, long elapsedTime);
+
     /**
      * Stops recording elapsed time.
      */
@@ -0,0 +1,140 @@
+package org.fabric3.gradle.plugin.itest.stopwatch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.fabric3.gradle.plugin.itest.metrics.Json;
+import org.gradle.api.logging.Logger;
+
+/**
+ * A stopwatch that records spans and writes them to a file in the trace event format, which can be opened in Chrome's trace viewer or Perfetto.
+ *
+ * Spans are written as complete events on the thread they were recorded on, so nesting is derived from their times. Splits are written as instant events
+ * on the thread that flushes the stopwatch.
+ */
+public class TraceStopWatch extends AbstractStopWatch {
+    private File file;
+    private Logger logger;
+    private long startMillis;
+    private Queue<Event> events = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructor.
+     *
+     * @param id     the stopwatch id, written as the name of the enclosing task event
+     * @param file   the trace file
+     * @param logger the logger to report errors writing the trace file to
+     */
+    public TraceStopWatch(String id, File file, Logger logger) {
+        super(id, TimeUnit.MILLISECONDS);
+        this.file = file;
+        this.logger = logger;
+    }
+
+    public void start() {
+        super.start();
+        startMillis = System.currentTimeMillis();
+    }
+
+    public Span begin(final String name) {
+        final String thread = Thread.currentThread().getName();
+        final long spanStart = System.nanoTime();
+        return new Span() {
+            public void end() {
+                long now = System.nanoTime();
+                events.add(new Event(name, "phase", thread, (spanStart - start) / 1000, (now - spanStart) / 1000));
+            }
+        };
+    }
+
+    public void record(String name, String category, String thread, long startTime, long elapsedTime) {
+        events.add(new Event(name, category, thread, (startTime - startMillis) * 1000, elapsedTime * 1000));
+    }
+
+    public void flush() {
+        String thread = Thread.currentThread().getName();
+        Map<String, Integer> threadIds = new LinkedHashMap<>();
+        threadIds.put(thread, 1);
+        try {
+            File parent = file.getAbsoluteFile().getParentFile();
+            Files.createDirectories(parent.toPath());
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                writer.write("{\"traceEvents\":[\n");
+                writeEvent(writer, new Event(id, "task", thread, 0, (end - start) / 1000), threadIds, "X");
+                if (splits != null) {
+                    for (Map.Entry<String[], Long> entry : getSplits().entrySet()) {
+                        String name = join(entry.getKey());
+                        writer.write(",\n");
+                        writeEvent(writer, new Event(name, "split", thread, entry.getValue() / 1000, 0), threadIds, "i");
+                    }
+                }
+                for (Event event : events) {
+                    writer.write(",\n");
+                    writeEvent(writer, event, threadIds, "X");
+                }
+                for (Map.Entry<String, Integer> entry : threadIds.entrySet()) {
+                    writer.write(",\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + entry.getValue() + ",\"args\":{\"name\":\"");
+                    writer.write(Json.escape(entry.getKey()));
+                    writer.write("\"}}");
+                }
+                writer.write("\n]}\n");
+            }
+        } catch (IOException e) {
+            // a missing trace must not fail the build
+            logger.warn("Error writing trace file " + file, e);
+        }
+    }
+
+    private void writeEvent(Writer writer, Event event, Map<String, Integer> threadIds, String phase) throws IOException {
+        String thread = event.thread != null ? event.thread : "tests";
+        Integer tid = threadIds.get(thread);
+        if (tid == null) {
+            tid = threadIds.size() + 1;
+            threadIds.put(thread, tid);
+        }
+        writer.write("{\"name\":\"");
+        writer.write(Json.escape(event.name));
+        writer.write("\",\"cat\":\"" + event.category + "\",\"ph\":\"" + phase + "\",\"pid\":1,\"tid\":" + tid + ",\"ts\":" + event.timestamp);
+        if ("X".equals(phase)) {
+            writer.write(",\"dur\":" + event.duration);
+        } else {
+            writer.write(",\"s\":\"t\"");
+        }
+        writer.write("}");
+    }
+
+    private String join(String[] markers) {
+        StringBuilder builder = new StringBuilder();
+        for (String marker : markers) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(marker);
+        }
+        return builder.toString();
+    }
+
+    private static class Event {
+        private String name;
+        private String category;
+        private String thread;
+        private long timestamp;
+        private long duration;
+
+        private Event(String name, String category, String thread, long timestamp, long duration) {
+            this.name = name;
+            this.category = category;
+            this.thread = thread;
+            this.timestamp = timestamp;
+            this.duration = duration;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.fabric3.gradle.plugin.api.test.ResourceUsage;
+import org.fabric3.gradle.plugin.api.test.TestFailure;
+import org.fabric3.gradle.plugin.api.test.TestListenerAdapter;
+import org.fabric3.gradle.plugin.api.test.TestResult;
+import org.fabric3.gradle.plugin.api.test.TestSuiteResult;
+
+/**
+ * An append-only binary log of test results.
+ *
+ * The log consists of two files in a directory: a records file containing fixed-size test and suite records, and a string table referenced by the
+ * records. Class and method names are interned so each is written once. Test and property records for a suite precede the suite record, and a test
+ * record is followed by a usage record if its resource usage was measured, a timing record if its body and overhead times were measured and an output
+ * record if output was captured for the test. Only the intern table is held in memory, so the memory used by the log grows with the number of distinct
+ * class names, method names, property names and failure types rather than with the number of test results.
+ */
+public class ResultLog extends TestListenerAdapter {
+    static final String RECORDS_FILE = "results.bin";
+    static final String STRINGS_FILE = "strings.bin";
+
+    static final int MAGIC = 0xF3E5_0001;
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 40;
+
+    static final byte TEST_RECORD = 1;
+    static final byte SUITE_RECORD = 2;
+    static final byte PROPERTY_RECORD = 3;
+    static final byte OUTPUT_RECORD = 4;
+    static final byte USAGE_RECORD = 5;
+    static final byte TIMING_RECORD = 6;
+
+    static final byte SUCCESS = 0;
+    static final byte FAILED = 1;
+
+    static final int NONE = -1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private File directory;
+    private FileChannel records;
+    private FileChannel strings;
+    private ByteBuffer recordBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private ByteBuffer stringBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private Map<String, Integer> interned = new HashMap<>();
+    private int nextId;
+    private IOException error;
+    private boolean closed;
+
+    /**
+     * Creates a new log in the directory, replacing an existing one.
+     *
+     * @param directory the directory
+     * @throws IOException if the log cannot be created
+     */
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    public ResultLog(File directory) throws IOException {
+        this.directory = directory;
+        directory.mkdirs();
+        records = open(new File(directory, RECORDS_FILE));
+        strings = open(new File(directory, STRINGS_FILE));
+        recordBuffer.putInt(MAGIC).putInt(RECORD_SIZE);
+    }
+
+    public synchronized void testFinished(TestResult result) {
+        if (error != null) {
+            return;
+        }
+        try {
+            int classId = intern(result.getTestClassName());
+            int methodId = intern(result.getTestMethodName());
+            int failureType = NONE;
+            int failureMessage = NONE;
+            int failureTrace = NONE;
+            TestFailure failure = result.getFailure();
+            if (failure != null) {
+                failureType = intern(failure.getType());
+                failureMessage = write(failure.getMessage());
+                failureTrace = write(failure.getStackTrace());
+            }
+            byte type = TestResult.Type.FAILED == result.getType() ? FAILED : SUCCESS;
+            writeRecord(TEST_RECORD, type, classId, methodId, failureType, failureMessage, failureTrace, result.getStartTime(), result.getElapsedTime());
+            ResourceUsage usage = result.getResourceUsage();
+            if (usage != null) {
+                // GC counts and times fit in the id slots; CPU time and allocated bytes use the time slots
+                writeRecord(USAGE_RECORD, SUCCESS, (int) usage.getGcCount(), (int) usage.getGcTime(), NONE, NONE, NONE, usage.getCpuTime(),
+                            usage.getAllocatedBytes());
+            }
+            if (result.getBodyTime() != ResourceUsage.UNAVAILABLE) {
+                writeRecord(TIMING_RECORD, SUCCESS, NONE, NONE, NONE, NONE, NONE, result.getBodyTime(), result.getOverheadTime());
+            }
+            if (result.getSystemOut() != null || result.getSystemErr() != null) {
+                writeRecord(OUTPUT_RECORD, SUCCESS, write(result.getSystemOut()), write(result.getSystemErr()), NONE, NONE, NONE, 0, 0);
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    public synchronized void suiteFinished(TestSuiteResult result) {
+        if (error != null) {
+            return;
+        }
+        try {
+            for (Map.Entry<String, String> entry : result.getProperties().entrySet()) {
+                writeRecord(PROPERTY_RECORD, SUCCESS, intern(entry.getKey()), write(entry.getValue()), NONE, NONE, NONE, 0, 0);
+            }
+            int classId = intern(result.getTestClassName());
+            writeRecord(SUITE_RECORD, SUCCESS, classId, NONE, NONE, NONE, NONE, result.getStartTime(), result.getElapsedTime());
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    /**
+     * Flushes and closes the log files. Closing a closed log has no effect.
+     *
+     * @throws IOException if there was an error writing to the log
+     */
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (error != null) {
+                throw error;
+            }
+            flush(records, recordBuffer);
+            flush(strings, stringBuffer);
+        } finally {
+            records.close();
+            strings.close();
+        }
+    }
+
+    /**
+     * Opens a reader for the log. The log must be closed first.
+     *
+     * @return the reader
+     * @throws IOException if there is an error opening the log
+     */
+    public ResultLogReader open() throws IOException {
+        return new ResultLogReader(directory);
+    }
+
+    private void writeRecord(byte kind,
+                             byte type,
+                             int classId,
+                             int methodId,
+                             int failureType,
+                             int failureMessage,
+                             int failureTrace,
+                             long startTime,
+                             long elapsedTime) throws IOException {
+        if (recordBuffer.remaining() < RECORD_SIZE) {
+            flush(records, recordBuffer);
+        }
+        recordBuffer.put(kind).put(type).putShort((short) 0);
+        recordBuffer.putInt(classId).putInt(methodId).putInt(failureType).putInt(failureMessage).putInt(failureTrace);
+        recordBuffer.putLong(startTime).putLong(elapsedTime);
+    }
+
+    private int intern(String value) throws IOException {
+        Integer id = interned.get(value);
+        if (id == null) {
+            id = write(value);
+            interned.put(value, id);
+        }
+        return id;
+    }
+
+    private int write(String value) throws IOException {
+        if (value == null) {
+            return NONE;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (stringBuffer.remaining() < 4) {
+            flush(strings, stringBuffer);
+        }
+        stringBuffer.putInt(bytes.length);
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!stringBuffer.hasRemaining()) {
+                flush(strings, stringBuffer);
+            }
+            int length = Math.min(stringBuffer.remaining(), bytes.length - offset);
+            stringBuffer.put(bytes, offset, length);
+            offset += length;
+        }
+        return nextId++;
+    }
+
+    private void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private FileChannel open(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+}
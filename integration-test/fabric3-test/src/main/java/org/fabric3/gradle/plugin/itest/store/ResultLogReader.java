@@ -0,0 +1,308 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.itest.store;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.fabric3.gradle.plugin.api.test.ResourceUsage;
+import org.fabric3.gradle.plugin.api.test.TestFailure;
+import org.fabric3.gradle.plugin.api.test.TestResult;
+import org.fabric3.gradle.plugin.api.test.TestSuiteResult;
+import org.gradle.api.GradleException;
+
+/**
+ * Reads a {@link ResultLog} through buffered positional reads.
+ *
+ * Suite results are materialized one at a time during iteration, so only the results of the current suite and the string table offsets are held in
+ * memory. The reader can be iterated multiple times, for example to write several reports from the same log. Files are not memory-mapped since
+ * mappings cannot be released explicitly and prevent the log from being replaced by the next run on some platforms. The reader must be closed.
+ */
+public class ResultLogReader implements Iterable<TestSuiteResult>, Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private FileChannel records;
+    private FileChannel strings;
+    private int[] offsets;
+    private int count;
+
+    private int successfulTests;
+    private int failedTests;
+
+    /**
+     * Opens the log in the given directory.
+     *
+     * @param directory the log directory
+     * @throws IOException if the log cannot be read
+     */
+    public ResultLogReader(File directory) throws IOException {
+        try {
+            records = FileChannel.open(new File(directory, ResultLog.RECORDS_FILE).toPath(), StandardOpenOption.READ);
+            strings = FileChannel.open(new File(directory, ResultLog.STRINGS_FILE).toPath(), StandardOpenOption.READ);
+            Window window = new Window(records);
+            if (records.size() < ResultLog.HEADER_SIZE || window.getInt(0) != ResultLog.MAGIC) {
+                throw new IOException("Invalid result log: " + directory);
+            }
+            if (window.getInt(4) != ResultLog.RECORD_SIZE) {
+                throw new IOException("Unsupported result log record size: " + window.getInt(4));
+            }
+            count = (int) ((records.size() - ResultLog.HEADER_SIZE) / ResultLog.RECORD_SIZE);
+            indexStrings();
+            countTests(window);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public int getSuccessfulTests() {
+        return successfulTests;
+    }
+
+    public int getFailedTests() {
+        return failedTests;
+    }
+
+    public boolean hasFailures() {
+        return failedTests > 0;
+    }
+
+    public void close() throws IOException {
+        try {
+            if (records != null) {
+                records.close();
+            }
+        } finally {
+            if (strings != null) {
+                strings.close();
+            }
+        }
+    }
+
+    public Iterator<TestSuiteResult> iterator() {
+        return new Iterator<TestSuiteResult>() {
+            private Window records = new Window(ResultLogReader.this.records);
+            private Window strings = new Window(ResultLogReader.this.strings);
+            private int index;
+            private TestSuiteResult next;
+
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = readSuite();
+                    } catch (IOException e) {
+                        throw new GradleException("Error reading result log", e);
+                    }
+                }
+                return next != null;
+            }
+
+            public TestSuiteResult next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                TestSuiteResult result = next;
+                next = null;
+                return result;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            private TestSuiteResult readSuite() throws IOException {
+                List<TestResult> tests = new ArrayList<>();
+                Map<String, String> properties = new LinkedHashMap<>();
+                while (index < count) {
+                    int position = ResultLog.HEADER_SIZE + index * ResultLog.RECORD_SIZE;
+                    index++;
+                    byte kind = records.get(position);
+                    if (kind == ResultLog.PROPERTY_RECORD) {
+                        properties.put(string(records.getInt(position + 4)), string(records.getInt(position + 8)));
+                        continue;
+                    }
+                    if (kind == ResultLog.USAGE_RECORD) {
+                        if (!tests.isEmpty()) {
+                            ResourceUsage usage = new ResourceUsage(records.getLong(position + 24),
+                                                                    records.getLong(position + 32),
+                                                                    records.getInt(position + 4),
+                                                                    records.getInt(position + 8));
+                            tests.get(tests.size() - 1).setResourceUsage(usage);
+                        }
+                        continue;
+                    }
+                    if (kind == ResultLog.TIMING_RECORD) {
+                        if (!tests.isEmpty()) {
+                            tests.get(tests.size() - 1).setInvocationTimes(records.getLong(position + 24), records.getLong(position + 32));
+                        }
+                        continue;
+                    }
+                    if (kind == ResultLog.OUTPUT_RECORD) {
+                        if (!tests.isEmpty()) {
+                            tests.get(tests.size() - 1).setOutput(string(records.getInt(position + 4)), string(records.getInt(position + 8)));
+                        }
+                        continue;
+                    }
+                    String className = string(records.getInt(position + 4));
+                    long startTime = records.getLong(position + 24);
+                    long elapsedTime = records.getLong(position + 32);
+                    if (kind == ResultLog.SUITE_RECORD) {
+                        TestSuiteResult suite = new TestSuiteResult(className, startTime, elapsedTime);
+                        for (TestResult test : tests) {
+                            suite.add(test);
+                        }
+                        for (Map.Entry<String, String> entry : properties.entrySet()) {
+                            suite.setProperty(entry.getKey(), entry.getValue());
+                        }
+                        return suite;
+                    }
+                    String methodName = string(records.getInt(position + 8));
+                    if (records.get(position + 1) == ResultLog.FAILED) {
+                        TestFailure failure = new TestFailure(string(records.getInt(position + 12)),
+                                                              string(records.getInt(position + 16)),
+                                                              string(records.getInt(position + 20)));
+                        tests.add(new TestResult(className, methodName, failure, startTime, elapsedTime));
+                    } else {
+                        tests.add(new TestResult(className, methodName, TestResult.Type.SUCCESS, startTime, elapsedTime));
+                    }
+                }
+                return null;
+            }
+
+            private String string(int id) throws IOException {
+                if (id == ResultLog.NONE) {
+                    return null;
+                }
+                int offset = offsets[id];
+                byte[] bytes = new byte[strings.getInt(offset)];
+                strings.get(offset + 4, bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    private void indexStrings() throws IOException {
+        Window window = new Window(strings);
+        int[] index = new int[1024];
+        int size = 0;
+        long position = 0;
+        long limit = strings.size();
+        while (position < limit) {
+            if (size == index.length) {
+                index = Arrays.copyOf(index, size * 2);
+            }
+            index[size++] = (int) position;
+            position += 4 + window.getInt(position);
+        }
+        offsets = Arrays.copyOf(index, size);
+    }
+
+    private void countTests(Window window) throws IOException {
+        for (int i = 0; i < count; i++) {
+            int position = ResultLog.HEADER_SIZE + i * ResultLog.RECORD_SIZE;
+            if (window.get(position) != ResultLog.TEST_RECORD) {
+                continue;
+            }
+            if (window.get(position + 1) == ResultLog.FAILED) {
+                failedTests++;
+            } else {
+                successfulTests++;
+            }
+        }
+    }
+
+    /**
+     * A buffered window over a file that is refilled with positional reads, so multiple windows can read the same channel concurrently.
+     */
+    private static class Window {
+        private FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private long start = -1;
+
+        private Window(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        public byte get(long position) throws IOException {
+            fill(position, 1);
+            return buffer.get((int) (position - start));
+        }
+
+        public int getInt(long position) throws IOException {
+            fill(position, 4);
+            return buffer.getInt((int) (position - start));
+        }
+
+        public long getLong(long position) throws IOException {
+            fill(position, 8);
+            return buffer.getLong((int) (position - start));
+        }
+
+        public void get(long position, byte[] bytes) throws IOException {
+            if (bytes.length > BUFFER_SIZE) {
+                ByteBuffer destination = ByteBuffer.wrap(bytes);
+                read(destination, position);
+                if (destination.hasRemaining()) {
+                    throw new EOFException("Unexpected end of result log");
+                }
+                return;
+            }
+            fill(position, bytes.length);
+            ByteBuffer view = buffer.duplicate();
+            view.position((int) (position - start));
+            view.get(bytes);
+        }
+
+        private void fill(long position, int length) throws IOException {
+            if (start >= 0 && position >= start && position + length <= start + buffer.limit()) {
+                return;
+            }
+            buffer.clear();
+            start = position;
+            read(buffer, position);
+            buffer.flip();
+            if (buffer.limit() < length) {
+                throw new EOFException("Unexpected end of result log");
+            }
+        }
+
+        private void read(ByteBuffer destination, long position) throws IOException {
+            long offset = position;
+            while (destination.hasRemaining()) {
+                int read = channel.read(destination, offset);
+                if (read == -1) {
+                    return;
+                }
+                offset += read;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.api.jfr;
+
+/**
+ * A Flight Recorder event being timed. Created by {@link FlightEventType#begin()}.
+ */
+public final class FlightEvent {
+    private Object event;
+    private int fields;
+
+    FlightEvent(Object event, int fields) {
+        this.event = event;
+        this.fields = fields;
+    }
+
+    /**
+     * Ends timing the event and commits it if it passes the recording's threshold.
+     *
+     * @param values the field values in the order the fields were defined
+     */
+    public void commit(String... values) {
+        try {
+            FlightEventType.end.invoke(event);
+            if (!(Boolean) FlightEventType.shouldCommit.invoke(event)) {
+                return;
+            }
+            for (int i = 0; i < fields && i < values.length; i++) {
+                FlightEventType.set.invoke(event, i, values[i]);
+            }
+            FlightEventType.commit.invoke(event);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // the event is dropped
+        }
+    }
+
+}
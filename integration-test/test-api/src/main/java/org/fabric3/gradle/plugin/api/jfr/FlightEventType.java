@@ -0,0 +1,149 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.api.jfr;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A JDK Flight Recorder event type with string fields and a duration.
+ *
+ * Event types are defined at runtime through <code>jdk.jfr.EventFactory</code> so the plugin does not require a JDK with Flight Recorder support. On
+ * JVMs without Flight Recorder, or when no recording has the event enabled, {@link #begin()} returns null and no event is allocated.
+ */
+public final class FlightEventType {
+    private static final String CATEGORY = "Fabric3";
+
+    private static final boolean AVAILABLE;
+    private static Method create;
+    private static Constructor<?> annotationElement;
+    private static Constructor<?> valueDescriptor;
+    private static Class<?> nameAnnotation;
+    private static Class<?> labelAnnotation;
+    private static Class<?> categoryAnnotation;
+    private static Method newEvent;
+    static Method isEnabled;
+    static Method begin;
+    static Method end;
+    static Method shouldCommit;
+    static Method commit;
+    static Method set;
+
+    static {
+        boolean available;
+        try {
+            Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+            Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+            Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+            Class<?> eventClass = Class.forName("jdk.jfr.Event");
+            nameAnnotation = Class.forName("jdk.jfr.Name");
+            labelAnnotation = Class.forName("jdk.jfr.Label");
+            categoryAnnotation = Class.forName("jdk.jfr.Category");
+            create = factoryClass.getMethod("create", List.class, List.class);
+            newEvent = factoryClass.getMethod("newEvent");
+            annotationElement = annotationElementClass.getConstructor(Class.class, Object.class);
+            valueDescriptor = valueDescriptorClass.getConstructor(Class.class, String.class);
+            isEnabled = eventClass.getMethod("isEnabled");
+            begin = eventClass.getMethod("begin");
+            end = eventClass.getMethod("end");
+            shouldCommit = eventClass.getMethod("shouldCommit");
+            commit = eventClass.getMethod("commit");
+            set = eventClass.getMethod("set", int.class, Object.class);
+            available = true;
+        } catch (ClassNotFoundException | NoSuchMethodException | RuntimeException e) {
+            // Flight Recorder is not present in this JVM
+            available = false;
+        }
+        AVAILABLE = available;
+    }
+
+    private Object factory;
+    private Object prototype;
+    private int fields;
+
+    private FlightEventType(Object factory, Object prototype, int fields) {
+        this.factory = factory;
+        this.prototype = prototype;
+        this.fields = fields;
+    }
+
+    /**
+     * Defines an event type. If Flight Recorder is not available, a type that never records events is returned.
+     *
+     * @param name       the event name, for example <code>org.fabric3.TestInvocation</code>
+     * @param label      the human-readable event name
+     * @param fieldNames the names of the string fields of the event
+     * @return the event type
+     */
+    public static FlightEventType define(String name, String label, String... fieldNames) {
+        if (!AVAILABLE) {
+            return new FlightEventType(null, null, fieldNames.length);
+        }
+        try {
+            List<Object> annotations = new ArrayList<>();
+            annotations.add(annotationElement.newInstance(nameAnnotation, name));
+            annotations.add(annotationElement.newInstance(labelAnnotation, label));
+            annotations.add(annotationElement.newInstance(categoryAnnotation, new String[]{CATEGORY}));
+            List<Object> descriptors = new ArrayList<>();
+            for (String fieldName : fieldNames) {
+                descriptors.add(valueDescriptor.newInstance(String.class, fieldName));
+            }
+            Object factory = create.invoke(null, annotations, descriptors);
+            Object prototype = newEvent.invoke(factory);
+            return new FlightEventType(factory, prototype, fieldNames.length);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return new FlightEventType(null, null, fieldNames.length);
+        }
+    }
+
+    /**
+     * Returns true if a recording has this event enabled.
+     *
+     * @return true if the event is enabled
+     */
+    public boolean isEnabled() {
+        if (prototype == null) {
+            return false;
+        }
+        try {
+            return (Boolean) isEnabled.invoke(prototype);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Begins timing an event.
+     *
+     * @return the event or null if the event is not enabled
+     */
+    public FlightEvent begin() {
+        if (!isEnabled()) {
+            return null;
+        }
+        try {
+            Object event = newEvent.invoke(factory);
+            begin.invoke(event);
+            return new FlightEvent(event, fields);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.api.jfr;
+
+/**
+ * The Flight Recorder events emitted by the plugin.
+ */
+public final class FlightEvents {
+
+    /**
+     * A phase of a test task such as runtime boot or contribution deployment. Fields: task, phase, outcome.
+     */
+    public static final FlightEventType PHASE = FlightEventType.define("org.fabric3.gradle.Phase", "Fabric3 Test Phase", "task", "phase", "outcome");
+
+    /**
+     * The execution of the tests in a test class. Fields: class, outcome.
+     */
+    public static final FlightEventType TEST_SET = FlightEventType.define("org.fabric3.gradle.TestSet", "Fabric3 Test Set", "testClass", "outcome");
+
+    /**
+     * The invocation of a test method through its invocation chain. Fields: class, method, outcome.
+     */
+    public static final FlightEventType TEST_INVOCATION = FlightEventType.define("org.fabric3.gradle.TestInvocation",
+                                                                                 "Fabric3 Test Invocation",
+                                                                                 "testClass",
+                                                                                 "testMethod",
+                                                                                 "outcome");
+
+    private FlightEvents() {
+    }
+}
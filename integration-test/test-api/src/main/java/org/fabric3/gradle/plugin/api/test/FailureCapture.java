@@ -0,0 +1,197 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.api.test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Captures exceptions as {@link TestFailure}s so that failed tests do not hold references to runtime objects or classloaders.
+ *
+ * Stack traces are trimmed by collapsing consecutive runtime frames, such as Fabric3 interceptors and reflective invocation, into a single line. Frames
+ * belonging to the test class are always kept. Causes and suppressed exceptions are included in the same layout as {@link Throwable#printStackTrace()}. Failures with identical traces share a single instance. Only the most recently captured failures are
+ * remembered for deduplication so that memory does not grow with the number of distinct traces in a run.
+ */
+public class FailureCapture {
+    // runtime and test extension packages only, so that application code in other org.fabric3 packages is kept
+    private static final String[] COLLAPSED_PREFIXES = {"org.fabric3.implementation.",
+                                                        "org.fabric3.fabric.",
+                                                        "org.fabric3.spi.",
+                                                        "org.fabric3.container.",
+                                                        "org.fabric3.runtime.",
+                                                        "org.fabric3.gradle.plugin.test.",
+                                                        "org.gradle.",
+                                                        "sun.reflect.",
+                                                        "jdk.internal.reflect.",
+                                                        "java.lang.reflect."};
+    private static final String CAUSED_BY = "Caused by: ";
+    private static final String SUPPRESSED = "Suppressed: ";
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private final Map<Integer, TestFailure> failures;
+
+    public FailureCapture() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity the maximum number of distinct failures remembered for deduplication
+     */
+    public FailureCapture(final int capacity) {
+        // access ordered so the least recently used failure is evicted once the capacity is reached
+        failures = new LinkedHashMap<Integer, TestFailure>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            protected boolean removeEldestEntry(Map.Entry<Integer, TestFailure> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Captures an exception, returning a recently captured failure if its trace is identical.
+     *
+     * @param throwable     the exception
+     * @param testClassName the test class name
+     * @return the failure
+     */
+    public TestFailure capture(Throwable throwable, String testClassName) {
+        TestFailure failure = describe(throwable, testClassName);
+        Integer key = failure.getStackTrace().hashCode();
+        synchronized (failures) {
+            TestFailure existing = failures.get(key);
+            if (existing != null && existing.getStackTrace().equals(failure.getStackTrace())) {
+                return existing;
+            }
+            // on a hash collision the most recent failure replaces the older one
+            failures.put(key, failure);
+            return failure;
+        }
+    }
+
+    /**
+     * Returns the number of distinct failures remembered for deduplication.
+     *
+     * @return the number of distinct failures
+     */
+    public int size() {
+        synchronized (failures) {
+            return failures.size();
+        }
+    }
+
+    /**
+     * Describes an exception without deduplicating it.
+     *
+     * @param throwable     the exception
+     * @param testClassName the test class name or null
+     * @return the failure
+     */
+    public static TestFailure describe(Throwable throwable, String testClassName) {
+        StringBuilder builder = new StringBuilder();
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>());
+        appendThrowable(builder, throwable, null, "", "", testClassName, seen);
+        return new TestFailure(throwable.getClass().getName(), throwable.getMessage(), builder.toString());
+    }
+
+    private static void appendThrowable(StringBuilder builder,
+                                        Throwable throwable,
+                                        StackTraceElement[] enclosing,
+                                        String caption,
+                                        String indent,
+                                        String testClassName,
+                                        Set<Throwable> seen) {
+        if (!seen.add(throwable)) {
+            return;
+        }
+        builder.append(indent).append(caption);
+        appendTrace(builder, throwable, enclosing, indent, testClassName);
+        StackTraceElement[] trace = throwable.getStackTrace();
+        for (Throwable suppressed : throwable.getSuppressed()) {
+            appendThrowable(builder, suppressed, trace, SUPPRESSED, indent + "\t", testClassName, seen);
+        }
+        Throwable cause = throwable.getCause();
+        if (cause != null) {
+            appendThrowable(builder, cause, trace, CAUSED_BY, indent, testClassName, seen);
+        }
+    }
+
+    private static void appendTrace(StringBuilder builder, Throwable throwable, StackTraceElement[] enclosing, String indent, String testClassName) {
+        builder.append(throwable.getClass().getName());
+        if (throwable.getMessage() != null) {
+            builder.append(": ").append(throwable.getMessage());
+        }
+        builder.append('\n');
+
+        StackTraceElement[] trace = throwable.getStackTrace();
+        int common = enclosing != null ? countCommonFrames(trace, enclosing) : 0;
+        int end = trace.length - common;
+        int collapsed = 0;
+        for (int i = 0; i < end; i++) {
+            StackTraceElement element = trace[i];
+            // always keep the frame the exception originated from
+            if (i > 0 && isCollapsed(element, testClassName)) {
+                collapsed++;
+                continue;
+            }
+            appendCollapsed(builder, collapsed, indent);
+            collapsed = 0;
+            builder.append(indent).append("\tat ").append(element).append('\n');
+        }
+        appendCollapsed(builder, collapsed, indent);
+        if (common > 0) {
+            builder.append(indent).append("\t... ").append(common).append(" more\n");
+        }
+    }
+
+    private static void appendCollapsed(StringBuilder builder, int collapsed, String indent) {
+        if (collapsed > 0) {
+            builder.append(indent).append("\t... ").append(collapsed).append(collapsed == 1 ? " runtime frame\n" : " runtime frames\n");
+        }
+    }
+
+    private static int countCommonFrames(StackTraceElement[] trace, StackTraceElement[] enclosing) {
+        int i = trace.length - 1;
+        int j = enclosing.length - 1;
+        int common = 0;
+        while (i >= 0 && j >= 0 && trace[i].equals(enclosing[j])) {
+            common++;
+            i--;
+            j--;
+        }
+        return common;
+    }
+
+    private static boolean isCollapsed(StackTraceElement element, String testClassName) {
+        String className = element.getClassName();
+        if (testClassName != null && (className.equals(testClassName) || className.startsWith(testClassName + "$"))) {
+            return false;
+        }
+        for (String prefix : COLLAPSED_PREFIXES) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -31,4 +31,13 @@ public interface IntegrationTestsFactory {
      */
     IntegrationTests createTests(ProgressLogger progressLogger);
 
+    /**
+     * Creates an integration test suite.
+     *
+     * @param progressLogger the progress logger for reporting test run information
+     * @param options        the test run options
+     * @return the test suite
+     */
+    IntegrationTests createTests(ProgressLogger progressLogger, TestOptions options);
+
 }
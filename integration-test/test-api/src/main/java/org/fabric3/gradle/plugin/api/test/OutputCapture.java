@@ -0,0 +1,189 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.api.test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Captures the output of a test into bounded buffers.
+ *
+ * A capture is bound to the thread running the test. While {@link #install()} is in effect, writes to <code>System.out</code> and
+ * <code>System.err</code> from a thread with an active capture are redirected to it; writes from other threads are passed through. Monitor output is
+ * added by the runtime destination router through {@link #current()}.
+ */
+public final class OutputCapture {
+    private static final ThreadLocal<OutputCapture> CURRENT = new ThreadLocal<>();
+
+    private static final Object LOCK = new Object();
+    private static int installations;
+    private static PrintStream originalOut;
+    private static PrintStream originalErr;
+
+    private RingBuffer out;
+    private RingBuffer err;
+
+    private OutputCapture(int limit) {
+        out = new RingBuffer(limit);
+        err = new RingBuffer(limit);
+    }
+
+    /**
+     * Starts capturing output for the current thread.
+     *
+     * @param limit the maximum number of bytes retained for each stream
+     * @return the capture
+     */
+    public static OutputCapture begin(int limit) {
+        OutputCapture capture = new OutputCapture(limit);
+        CURRENT.set(capture);
+        return capture;
+    }
+
+    /**
+     * Returns the active capture for the current thread or null.
+     *
+     * @return the active capture or null
+     */
+    public static OutputCapture current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Redirects the system streams so that output from threads with an active capture is captured. Installations are counted so that concurrent test runs
+     * in the same JVM can share the redirection.
+     */
+    public static void install() {
+        synchronized (LOCK) {
+            if (installations++ > 0) {
+                return;
+            }
+            originalOut = System.out;
+            originalErr = System.err;
+            System.setOut(createStream(originalOut, false));
+            System.setErr(createStream(originalErr, true));
+        }
+    }
+
+    /**
+     * Restores the system streams when the last installation is removed.
+     */
+    public static void uninstall() {
+        synchronized (LOCK) {
+            if (installations == 0 || --installations > 0) {
+                return;
+            }
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+            originalOut = null;
+            originalErr = null;
+        }
+    }
+
+    /**
+     * Stops capturing output for the current thread.
+     */
+    public void end() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    public synchronized void writeOut(byte[] bytes, int offset, int length) {
+        out.write(bytes, offset, length);
+    }
+
+    public synchronized void writeErr(byte[] bytes, int offset, int length) {
+        err.write(bytes, offset, length);
+    }
+
+    /**
+     * Appends a line of text.
+     *
+     * @param line  the line
+     * @param error true if the line is written to the error stream
+     */
+    public void println(String line, boolean error) {
+        byte[] bytes = (line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+        if (error) {
+            writeErr(bytes, 0, bytes.length);
+        } else {
+            writeOut(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Returns the captured standard output or null if there was none.
+     *
+     * @return the captured output or null
+     */
+    public synchronized String getOut() {
+        return out.getContents();
+    }
+
+    /**
+     * Returns the captured standard error or null if there was none.
+     *
+     * @return the captured output or null
+     */
+    public synchronized String getErr() {
+        return err.getContents();
+    }
+
+    private static PrintStream createStream(PrintStream original, boolean error) {
+        try {
+            return new PrintStream(new CapturingOutputStream(original, error), true, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Writes to the active capture of the current thread or to the original stream if there is none.
+     */
+    private static class CapturingOutputStream extends OutputStream {
+        private PrintStream original;
+        private boolean error;
+
+        private CapturingOutputStream(PrintStream original, boolean error) {
+            this.original = original;
+            this.error = error;
+        }
+
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            OutputCapture capture = CURRENT.get();
+            if (capture == null) {
+                original.write(bytes, offset, length);
+            } else if (error) {
+                capture.writeErr(bytes, offset, length);
+            } else {
+                capture.writeOut(bytes, offset, length);
+            }
+        }
+
+        public void flush() throws IOException {
+            original.flush();
+        }
+    }
+}
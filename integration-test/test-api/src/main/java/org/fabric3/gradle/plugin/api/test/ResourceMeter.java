@@ -0,0 +1,123 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.api.test;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * Measures the resources consumed by the current thread between {@link #start()} and {@link #stop()} using the platform MXBeans.
+ *
+ * A meter must be started and stopped on the same thread.
+ */
+public final class ResourceMeter {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final List<GarbageCollectorMXBean> COLLECTORS = ManagementFactory.getGarbageCollectorMXBeans();
+    private static final boolean CPU_TIME = THREADS.isThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+    private static final com.sun.management.ThreadMXBean ALLOCATION = getAllocationBean();
+
+    private long cpuTime;
+    private long allocatedBytes;
+    private long gcCount;
+    private long gcTime;
+
+    private ResourceMeter() {
+    }
+
+    /**
+     * Starts measuring the current thread.
+     *
+     * @return the meter
+     */
+    public static ResourceMeter start() {
+        ResourceMeter meter = new ResourceMeter();
+        meter.gcCount = getGcCount();
+        meter.gcTime = getGcTime();
+        meter.allocatedBytes = getAllocatedBytes();
+        meter.cpuTime = getCpuTime();
+        return meter;
+    }
+
+    /**
+     * Stops measuring and returns the resources consumed since the meter was started.
+     *
+     * @return the resource usage
+     */
+    public ResourceUsage stop() {
+        long cpuTimeDelta = delta(cpuTime, getCpuTime());
+        long allocatedDelta = delta(allocatedBytes, getAllocatedBytes());
+        return new ResourceUsage(cpuTimeDelta, allocatedDelta, delta(gcCount, getGcCount()), delta(gcTime, getGcTime()));
+    }
+
+    private static long delta(long start, long end) {
+        if (start == ResourceUsage.UNAVAILABLE || end == ResourceUsage.UNAVAILABLE) {
+            return ResourceUsage.UNAVAILABLE;
+        }
+        return end - start;
+    }
+
+    private static long getCpuTime() {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : ResourceUsage.UNAVAILABLE;
+    }
+
+    private static long getAllocatedBytes() {
+        if (ALLOCATION == null) {
+            return ResourceUsage.UNAVAILABLE;
+        }
+        return ALLOCATION.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long getGcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : COLLECTORS) {
+            long count = collector.getCollectionCount();
+            if (count < 0) {
+                return ResourceUsage.UNAVAILABLE;
+            }
+            total = total + count;
+        }
+        return total;
+    }
+
+    private static long getGcTime() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : COLLECTORS) {
+            long time = collector.getCollectionTime();
+            if (time < 0) {
+                return ResourceUsage.UNAVAILABLE;
+            }
+            total = total + time;
+        }
+        return total;
+    }
+
+    private static com.sun.management.ThreadMXBean getAllocationBean() {
+        try {
+            if (THREADS instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREADS;
+                if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                    return bean;
+                }
+            }
+        } catch (LinkageError e) {
+            // not a HotSpot-based JVM
+        }
+        return null;
+    }
+}
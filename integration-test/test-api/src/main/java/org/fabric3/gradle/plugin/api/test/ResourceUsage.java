@@ -0,0 +1,75 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.api.test;
+
+/**
+ * The resources consumed while a test ran.
+ *
+ * CPU time and allocated bytes are measured for the thread running the test. Garbage collections are counted for the whole JVM, so they include
+ * collections caused by other threads. Measurements that are not supported by the JVM are {@link #UNAVAILABLE}.
+ */
+public final class ResourceUsage {
+    public static final long UNAVAILABLE = -1;
+
+    private final long cpuTime;
+    private final long allocatedBytes;
+    private final long gcCount;
+    private final long gcTime;
+
+    public ResourceUsage(long cpuTime, long allocatedBytes, long gcCount, long gcTime) {
+        this.cpuTime = cpuTime;
+        this.allocatedBytes = allocatedBytes;
+        this.gcCount = gcCount;
+        this.gcTime = gcTime;
+    }
+
+    /**
+     * Returns the CPU time of the test thread.
+     *
+     * @return the CPU time in nanoseconds or {@link #UNAVAILABLE}
+     */
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    /**
+     * Returns the number of bytes allocated by the test thread.
+     *
+     * @return the allocated bytes or {@link #UNAVAILABLE}
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Returns the number of garbage collections.
+     *
+     * @return the number of collections or {@link #UNAVAILABLE}
+     */
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    /**
+     * Returns the accumulated garbage collection time.
+     *
+     * @return the collection time in milliseconds or {@link #UNAVAILABLE}
+     */
+    public long getGcTime() {
+        return gcTime;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.api.test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A fixed-size byte buffer that retains the most recently written bytes. The buffer is allocated on the first write.
+ */
+final class RingBuffer {
+    private int capacity;
+    private byte[] buffer;
+    private int position;
+    private long written;
+
+    public RingBuffer(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void write(byte[] bytes, int offset, int length) {
+        if (length <= 0 || capacity <= 0) {
+            return;
+        }
+        if (buffer == null) {
+            buffer = new byte[capacity];
+        }
+        written = written + length;
+        if (length >= capacity) {
+            // only the tail of the write fits
+            System.arraycopy(bytes, offset + length - capacity, buffer, 0, capacity);
+            position = 0;
+            return;
+        }
+        int first = Math.min(length, capacity - position);
+        System.arraycopy(bytes, offset, buffer, position, first);
+        System.arraycopy(bytes, offset + first, buffer, 0, length - first);
+        position = (position + length) % capacity;
+    }
+
+    /**
+     * Returns the retained contents, prefixed with a note of how many bytes were discarded, or null if nothing was written.
+     *
+     * @return the contents or null
+     */
+    public String getContents() {
+        if (written == 0) {
+            return null;
+        }
+        if (written <= capacity) {
+            return new String(buffer, 0, (int) written, StandardCharsets.UTF_8);
+        }
+        byte[] ordered = new byte[capacity];
+        System.arraycopy(buffer, position, ordered, 0, capacity - position);
+        System.arraycopy(buffer, 0, ordered, capacity - position, position);
+        return "[" + (written - capacity) + " bytes discarded]\n" + new String(ordered, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.api.test;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers test events to listeners on a dedicated thread so that test threads are not blocked by slow listeners.
+ *
+ * Events are held in a bounded queue. When listeners fall behind, publishing threads wait for space so that memory used by queued results does not grow
+ * with the number of suites. A failing listener does not prevent delivery to other listeners. The first failure is raised when the dispatcher is
+ * closed.
+ */
+public class TestEventDispatcher {
+    private static final Event STOP = new Event(null, null, null);
+    private static final int MAX_SUPPRESSED = 10;
+    private static final int CAPACITY = 1024;
+    private static final long WAIT = 100;
+
+    private List<TestListener> listeners;
+    private BlockingQueue<Event> queue = new ArrayBlockingQueue<>(CAPACITY);
+    private Thread thread;
+    private volatile RuntimeException failure;
+
+    public TestEventDispatcher(List<TestListener> listeners) {
+        this.listeners = listeners;
+        thread = new Thread("fabric3-test-events") {
+            public void run() {
+                dispatch();
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues an event for delivery, waiting if the queue is full.
+     *
+     * @param type   the event type
+     * @param source the event source, either a suite or test result or the test class name
+     * @param method the test method name for test started events
+     * @throws TestListenerException if the dispatch thread has stopped
+     */
+    public void publish(EventType type, Object source, String method) {
+        enqueue(new Event(type, source, method));
+    }
+
+    /**
+     * Delivers outstanding events and stops the dispatch thread.
+     *
+     * @throws TestListenerException if a listener failed
+     */
+    public void close() {
+        enqueue(STOP);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw new TestListenerException("Error delivering test events to a listener", failure);
+        }
+    }
+
+    private void enqueue(Event event) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    if (queue.offer(event, WAIT, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    // the event must still be delivered; the interrupt is restored once it is queued
+                    interrupted = true;
+                }
+                if (!thread.isAlive()) {
+                    if (event == STOP) {
+                        return;
+                    }
+                    throw new TestListenerException("The test event dispatch thread has stopped", failure);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void dispatch() {
+        while (true) {
+            Event event;
+            try {
+                event = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (event == STOP) {
+                return;
+            }
+            for (TestListener listener : listeners) {
+                try {
+                    deliver(event, listener);
+                } catch (RuntimeException e) {
+                    // do not let a failing listener prevent delivery to others; the first failure is raised on close
+                    if (failure == null) {
+                        failure = e;
+                    } else if (failure != e && failure.getSuppressed().length < MAX_SUPPRESSED) {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        }
+    }
+
+    private void deliver(Event event, TestListener listener) {
+        switch (event.type) {
+            case SUITE_STARTED:
+                listener.suiteStarted((TestSuiteResult) event.source);
+                break;
+            case TEST_STARTED:
+                listener.testStarted((String) event.source, event.method);
+                break;
+            case TEST_FINISHED:
+                listener.testFinished((TestResult) event.source);
+                break;
+            case SUITE_FINISHED:
+                listener.suiteFinished((TestSuiteResult) event.source);
+                break;
+        }
+    }
+
+    public enum EventType {
+        SUITE_STARTED, TEST_STARTED, TEST_FINISHED, SUITE_FINISHED
+    }
+
+    private static class Event {
+        private final EventType type;
+        private final Object source;
+        private final String method;
+
+        private Event(EventType type, Object source, String method) {
+            this.type = type;
+            this.source = source;
+            this.method = method;
+        }
+    }
+}
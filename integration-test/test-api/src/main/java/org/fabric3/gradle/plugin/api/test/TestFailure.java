@@ -0,0 +1,73 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.api.test;
+
+/**
+ * An immutable description of a test failure. Failures do not reference the exception they were created from.
+ */
+public final class TestFailure {
+    private final String type;
+    private final String message;
+    private final String stackTrace;
+
+    public TestFailure(String type, String message, String stackTrace) {
+        this.type = type;
+        this.message = message;
+        this.stackTrace = stackTrace;
+    }
+
+    /**
+     * Creates a failure description from an exception. Use {@link FailureCapture} to deduplicate failures.
+     *
+     * @param throwable the exception
+     * @return the failure
+     */
+    public static TestFailure from(Throwable throwable) {
+        return FailureCapture.describe(throwable, null);
+    }
+
+    /**
+     * Returns the exception class name.
+     *
+     * @return the exception class name
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Returns the exception message or null.
+     *
+     * @return the exception message or null
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the formatted stack trace.
+     *
+     * @return the formatted stack trace
+     */
+    public String getStackTrace() {
+        return stackTrace;
+    }
+
+    public String toString() {
+        return message != null ? type + ": " + message : type;
+    }
+}
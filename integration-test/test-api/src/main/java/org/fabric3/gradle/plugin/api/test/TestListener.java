@@ -0,0 +1,56 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.api.test;
+
+/**
+ * Receives test run events from a {@link TestRecorder}.
+ *
+ * Events are delivered in order on a single dispatch thread, not the thread executing the tests. Implementations should therefore not assume they are
+ * called on the test thread and must not block for long periods as this delays delivery to other listeners.
+ */
+public interface TestListener {
+
+    /**
+     * Called when a test suite starts.
+     *
+     * @param result the suite result
+     */
+    void suiteStarted(TestSuiteResult result);
+
+    /**
+     * Called when a test starts.
+     *
+     * @param testClassName  the test class name
+     * @param testMethodName the test method name
+     */
+    void testStarted(String testClassName, String testMethodName);
+
+    /**
+     * Called when a test completes.
+     *
+     * @param result the test result
+     */
+    void testFinished(TestResult result);
+
+    /**
+     * Called when a test suite has completed.
+     *
+     * @param result the suite result
+     */
+    void suiteFinished(TestSuiteResult result);
+
+}
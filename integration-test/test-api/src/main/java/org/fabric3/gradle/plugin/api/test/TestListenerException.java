@@ -0,0 +1,28 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.api.test;
+
+/**
+ * Raised when a test listener fails, for example because a report could not be written, so that results are not silently lost.
+ */
+public class TestListenerException extends RuntimeException {
+    private static final long serialVersionUID = 4117402592318226014L;
+
+    public TestListenerException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.api.test;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Options for a test run.
+ */
+public class TestOptions {
+    private boolean captureOutput;
+    private boolean captureSuccessfulOutput;
+    private int outputLimit = 64 * 1024;
+    private boolean measureResources;
+    private boolean measureOverhead;
+    private long profileThreshold;
+    private long profileInterval = 10;
+    private File profileDirectory;
+    private Map<String, Set<String>> mbeanAttributes = Collections.emptyMap();
+
+    public boolean isCaptureOutput() {
+        return captureOutput;
+    }
+
+    /**
+     * Sets whether output written during each test is captured instead of being written to the console.
+     *
+     * @param captureOutput true if output is captured
+     */
+    public void setCaptureOutput(boolean captureOutput) {
+        this.captureOutput = captureOutput;
+    }
+
+    public boolean isCaptureSuccessfulOutput() {
+        return captureSuccessfulOutput;
+    }
+
+    /**
+     * Sets whether captured output is retained for successful tests. By default, it is only retained for failed tests.
+     *
+     * @param captureSuccessfulOutput true if output is retained for successful tests
+     */
+    public void setCaptureSuccessfulOutput(boolean captureSuccessfulOutput) {
+        this.captureSuccessfulOutput = captureSuccessfulOutput;
+    }
+
+    public int getOutputLimit() {
+        return outputLimit;
+    }
+
+    /**
+     * Sets the maximum number of bytes of standard output and of standard error retained per test. Earlier output is discarded.
+     *
+     * @param outputLimit the limit in bytes
+     */
+    public void setOutputLimit(int outputLimit) {
+        this.outputLimit = outputLimit;
+    }
+
+    public boolean isMeasureResources() {
+        return measureResources;
+    }
+
+    /**
+     * Sets whether the CPU time, allocated bytes and garbage collections of each test are measured.
+     *
+     * @param measureResources true if resources are measured
+     */
+    public void setMeasureResources(boolean measureResources) {
+        this.measureResources = measureResources;
+    }
+
+    public boolean isMeasureOverhead() {
+        return measureOverhead;
+    }
+
+    /**
+     * Sets whether the time spent in the test method is measured separately from the time spent in the invocation chain in front of it.
+     *
+     * @param measureOverhead true if the times are measured separately
+     */
+    public void setMeasureOverhead(boolean measureOverhead) {
+        this.measureOverhead = measureOverhead;
+    }
+
+    public long getProfileThreshold() {
+        return profileThreshold;
+    }
+
+    /**
+     * Sets the elapsed time above which the stack samples taken while a test ran are written to the profile directory. If 0, tests are not sampled.
+     *
+     * @param profileThreshold the threshold in milliseconds
+     */
+    public void setProfileThreshold(long profileThreshold) {
+        this.profileThreshold = profileThreshold;
+    }
+
+    public long getProfileInterval() {
+        return profileInterval;
+    }
+
+    /**
+     * Sets the interval between stack samples.
+     *
+     * @param profileInterval the interval in milliseconds
+     */
+    public void setProfileInterval(long profileInterval) {
+        this.profileInterval = profileInterval;
+    }
+
+    public File getProfileDirectory() {
+        return profileDirectory;
+    }
+
+    /**
+     * Sets the directory collapsed-stack profiles of slow tests are written to.
+     *
+     * @param profileDirectory the directory
+     */
+    public void setProfileDirectory(File profileDirectory) {
+        this.profileDirectory = profileDirectory;
+    }
+
+    public Map<String, Set<String>> getMBeanAttributes() {
+        return mbeanAttributes;
+    }
+
+    /**
+     * Sets the MBean attributes read before and after each test class runs, keyed by object name or object name pattern.
+     *
+     * @param mbeanAttributes the attribute names keyed by object name
+     */
+    public void setMBeanAttributes(Map<String, Set<String>> mbeanAttributes) {
+        this.mbeanAttributes = mbeanAttributes;
+    }
+
+    /**
+     * Returns true if slow tests are profiled.
+     *
+     * @return true if slow tests are profiled
+     */
+    public boolean isProfile() {
+        return profileThreshold > 0 && profileDirectory != null;
+    }
+}
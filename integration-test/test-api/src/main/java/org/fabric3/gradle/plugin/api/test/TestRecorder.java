@@ -18,40 +18,111 @@ package org.fabric3.gradle.plugin.api.test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Records test results.
+ *
+ * Results may be recorded concurrently. Aggregate counts are maintained from the counts of each suite passed to {@link #result(TestSuiteResult)} so they can
+ * be read at any time without scanning the results. Tests reported through {@link #testFinished(TestResult)} are only published to listeners and are
+ * counted when their suite is recorded.
  */
 public class TestRecorder {
-    private List<TestSuiteResult> results = new ArrayList<>();
+    private Queue<TestSuiteResult> results = new ConcurrentLinkedQueue<>();
+    private AtomicInteger successful = new AtomicInteger();
+    private AtomicInteger failed = new AtomicInteger();
     private long startTime;
     private long elapsedTime = -1;
+    private List<TestListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile TestEventDispatcher dispatcher;
+    private volatile boolean retainResults = true;
+    private FailureCapture failureCapture = new FailureCapture();
+
+    /**
+     * Adds a listener. Listeners must be added before the test run is started.
+     *
+     * @param listener the listener
+     */
+    public void addListener(TestListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Sets whether suite results are retained in memory. Results that are not retained are only available to listeners.
+     *
+     * @param retainResults true if results are retained
+     */
+    public void setRetainResults(boolean retainResults) {
+        this.retainResults = retainResults;
+    }
+
+    /**
+     * Captures a test failure, detaching it from the exception and sharing instances between identical failures.
+     *
+     * @param throwable     the exception
+     * @param testClassName the test class name
+     * @return the failure
+     */
+    public TestFailure capture(Throwable throwable, String testClassName) {
+        return failureCapture.capture(throwable, testClassName);
+    }
+
+    public void suiteStarted(TestSuiteResult result) {
+        publish(TestEventDispatcher.EventType.SUITE_STARTED, result, null);
+    }
+
+    public void testStarted(String testClassName, String testMethodName) {
+        publish(TestEventDispatcher.EventType.TEST_STARTED, testClassName, testMethodName);
+    }
+
+    public void testFinished(TestResult result) {
+        publish(TestEventDispatcher.EventType.TEST_FINISHED, result, null);
+    }
 
     public void result(TestSuiteResult result) {
-        results.add(result);
+        successful.addAndGet(result.getSuccessfulTests());
+        failed.addAndGet(result.getFailedTests());
+        if (retainResults) {
+            results.add(result);
+        }
+        publish(TestEventDispatcher.EventType.SUITE_FINISHED, result, null);
     }
 
     public boolean hasFailures() {
-        for (TestSuiteResult result : results) {
-            for (TestResult testResult : result.getTestResults()) {
-                if (testResult.getType() == TestResult.Type.FAILED) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return failed.get() > 0;
     }
 
     public void start() {
         startTime = System.currentTimeMillis();
+        if (!listeners.isEmpty()) {
+            dispatcher = new TestEventDispatcher(listeners);
+        }
     }
 
+    /**
+     * Stops the test run, waiting until all events have been delivered to listeners.
+     *
+     * @throws TestListenerException if a listener failed during the run
+     */
     public void stop() {
         elapsedTime = System.currentTimeMillis() - startTime;
+        TestEventDispatcher current = dispatcher;
+        if (current != null) {
+            dispatcher = null;
+            current.close();
+        }
     }
 
+    /**
+     * Returns a snapshot of the retained suite results.
+     *
+     * @return the results
+     */
     public List<TestSuiteResult> getResults() {
-        return results;
+        return new ArrayList<>(results);
     }
 
     public long getStartTime() {
@@ -63,18 +134,17 @@ public class TestRecorder {
     }
 
     public int getSuccessfulTests() {
-        int success = 0;
-        for (TestSuiteResult result : results) {
-            success = success + result.getSuccessfulTests();
-        }
-        return success;
+        return successful.get();
     }
 
     public int getFailedTests() {
-        int failed = 0;
-        for (TestSuiteResult result : results) {
-            failed = failed + result.getFailedTests();
+        return failed.get();
+    }
+
+    private void publish(TestEventDispatcher.EventType type, Object source, String method) {
+        TestEventDispatcher current = dispatcher;
+        if (current != null) {
+            current.publish(type, source, method);
         }
-        return failed;
     }
 }
@@ -27,7 +27,12 @@ public class TestResult {
     private String testClassName;
     private String testMethodName;
     private Type type;
-    private Throwable throwable;
+    private TestFailure failure;
+    private String systemOut;
+    private String systemErr;
+    private ResourceUsage resourceUsage;
+    private long bodyTime = ResourceUsage.UNAVAILABLE;
+    private long overheadTime = ResourceUsage.UNAVAILABLE;
     private long startTime;
     private long elapsedTime;
 
@@ -39,10 +44,10 @@ public class TestResult {
         this.elapsedTime = elapsedTime;
     }
 
-    public TestResult(String testClassName, String testMethodName, Throwable throwable, long startTime, long elapsedTime) {
+    public TestResult(String testClassName, String testMethodName, TestFailure failure, long startTime, long elapsedTime) {
         this.testClassName = testClassName;
         this.testMethodName = testMethodName;
-        this.throwable = throwable;
+        this.failure = failure;
         this.startTime = startTime;
         this.type = Type.FAILED;
         this.elapsedTime = elapsedTime;
@@ -60,8 +65,74 @@ public class TestResult {
         return type;
     }
 
-    public Throwable getThrowable() {
-        return throwable;
+    public TestFailure getFailure() {
+        return failure;
+    }
+
+    /**
+     * Sets the output captured while the test ran.
+     *
+     * @param systemOut the captured standard output or null
+     * @param systemErr the captured standard error or null
+     */
+    public void setOutput(String systemOut, String systemErr) {
+        this.systemOut = systemOut;
+        this.systemErr = systemErr;
+    }
+
+    public String getSystemOut() {
+        return systemOut;
+    }
+
+    public String getSystemErr() {
+        return systemErr;
+    }
+
+    /**
+     * Sets the resources consumed while the test ran.
+     *
+     * @param resourceUsage the resource usage
+     */
+    public void setResourceUsage(ResourceUsage resourceUsage) {
+        this.resourceUsage = resourceUsage;
+    }
+
+    /**
+     * Returns the resources consumed while the test ran or null if they were not measured.
+     *
+     * @return the resource usage or null
+     */
+    public ResourceUsage getResourceUsage() {
+        return resourceUsage;
+    }
+
+    /**
+     * Sets the time spent in the test method and the time spent in the invocation chain around it.
+     *
+     * @param bodyTime     the time spent in the test method in nanoseconds
+     * @param overheadTime the time spent in interceptors in front of the test method in nanoseconds
+     */
+    public void setInvocationTimes(long bodyTime, long overheadTime) {
+        this.bodyTime = bodyTime;
+        this.overheadTime = overheadTime;
+    }
+
+    /**
+     * Returns the time spent in the test method.
+     *
+     * @return the time in nanoseconds or {@link ResourceUsage#UNAVAILABLE} if it was not measured
+     */
+    public long getBodyTime() {
+        return bodyTime;
+    }
+
+    /**
+     * Returns the time spent in interceptors in front of the test method, such as policy and transaction interceptors.
+     *
+     * @return the time in nanoseconds or {@link ResourceUsage#UNAVAILABLE} if it was not measured
+     */
+    public long getOverheadTime() {
+        return overheadTime;
     }
 
     public long getStartTime() {
@@ -17,7 +17,12 @@
 package org.fabric3.gradle.plugin.api.test;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A result for a test suite.
@@ -26,15 +31,26 @@ public class TestSuiteResult {
     private String testClassName;
     private long startTime;
     private long elapsedTime;
+    private String threadName;
 
-    private List<TestResult> testResults = new ArrayList<>();
+    private Queue<TestResult> testResults = new ConcurrentLinkedQueue<>();
+    private AtomicInteger successful = new AtomicInteger();
+    private AtomicInteger failed = new AtomicInteger();
+    private Map<String, String> properties = new LinkedHashMap<>();
 
     public TestSuiteResult(String testClassName) {
         this.testClassName = testClassName;
     }
 
+    public TestSuiteResult(String testClassName, long startTime, long elapsedTime) {
+        this.testClassName = testClassName;
+        this.startTime = startTime;
+        this.elapsedTime = elapsedTime;
+    }
+
     public void start() {
         startTime = System.currentTimeMillis();
+        threadName = Thread.currentThread().getName();
     }
 
     public void stop() {
@@ -43,6 +59,11 @@ public class TestSuiteResult {
 
     public void add(TestResult result) {
         testResults.add(result);
+        if (TestResult.Type.FAILED == result.getType()) {
+            failed.incrementAndGet();
+        } else {
+            successful.incrementAndGet();
+        }
     }
 
     public String getTestClassName() {
@@ -57,28 +78,44 @@ public class TestSuiteResult {
         return elapsedTime;
     }
 
+    /**
+     * Returns the name of the thread the suite was run on or null if the suite was not run in this process.
+     *
+     * @return the thread name or null
+     */
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * Returns a snapshot of the test results.
+     *
+     * @return the results
+     */
     public List<TestResult> getTestResults() {
-        return testResults;
+        return new ArrayList<>(testResults);
+    }
+
+    /**
+     * Sets a property that is included in reports for the suite.
+     *
+     * @param name  the property name
+     * @param value the property value
+     */
+    public synchronized void setProperty(String name, String value) {
+        properties.put(name, value);
+    }
+
+    public synchronized Map<String, String> getProperties() {
+        return new LinkedHashMap<>(properties);
     }
 
     public int getSuccessfulTests() {
-        int success = 0;
-        for (TestResult result : testResults) {
-            if (TestResult.Type.SUCCESS == result.getType()) {
-                success++;
-            }
-        }
-        return success;
+        return successful.get();
     }
 
     public int getFailedTests() {
-        int failed = 0;
-        for (TestResult result : testResults) {
-            if (TestResult.Type.FAILED == result.getType()) {
-                failed++;
-            }
-        }
-        return failed;
+        return failed.get();
     }
 
 }
@@ -16,10 +16,14 @@
  */
 package org.fabric3.gradle.plugin.test;
 
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.fabric3.gradle.plugin.api.test.IntegrationTests;
 import org.fabric3.gradle.plugin.api.test.IntegrationTestsFactory;
+import org.fabric3.gradle.plugin.api.test.TestOptions;
 import org.fabric3.gradle.plugin.api.test.TestRecorder;
 import org.fabric3.spi.container.wire.Wire;
 import org.fabric3.test.spi.TestWireHolder;
@@ -31,17 +35,26 @@ import org.oasisopen.sca.annotation.Reference;
  */
 public class IntegrationTestsFactoryImpl implements IntegrationTestsFactory {
     private TestWireHolder wireHolder;
+    // wires tests have already been created for; weakly held so that wires of undeployed test composites, and their classloaders, can be collected
+    private Set<Wire> consumed = Collections.newSetFromMap(new WeakHashMap<Wire, Boolean>());
 
     public IntegrationTestsFactoryImpl(@Reference TestWireHolder wireHolder) {
         this.wireHolder = wireHolder;
     }
 
     public IntegrationTests createTests(ProgressLogger progressLogger) {
+        return createTests(progressLogger, new TestOptions());
+    }
+
+    public synchronized IntegrationTests createTests(ProgressLogger progressLogger, TestOptions options) {
         TestRecorder recorder = new TestRecorder();
-        IntegrationTestsImpl suite = new IntegrationTestsImpl(recorder);
+        IntegrationTestsImpl suite = new IntegrationTestsImpl(recorder, options);
+        // a shared runtime holds the wires of test composites deployed by earlier tasks; only create tests for wires attached since then
         for (Map.Entry<String, Wire> entry : wireHolder.getWires().entrySet()) {
-            TestSet testSet = new TestSet(entry.getKey(), entry.getValue(), recorder);
-            suite.add(testSet);
+            Wire wire = entry.getValue();
+            if (consumed.add(wire)) {
+                suite.add(new TestSet(entry.getKey(), wire, recorder, options));
+            }
         }
         return suite;
     }
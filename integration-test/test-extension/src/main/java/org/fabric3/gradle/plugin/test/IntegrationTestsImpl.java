@@ -20,6 +20,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.fabric3.gradle.plugin.api.test.IntegrationTests;
+import org.fabric3.gradle.plugin.api.test.OutputCapture;
+import org.fabric3.gradle.plugin.api.test.TestOptions;
 import org.fabric3.gradle.plugin.api.test.TestRecorder;
 
 /**
@@ -27,10 +29,12 @@ import org.fabric3.gradle.plugin.api.test.TestRecorder;
  */
 public class IntegrationTestsImpl implements IntegrationTests {
     private TestRecorder recorder;
+    private TestOptions options;
     private List<TestSet> testSets = new ArrayList<>();
 
-    public IntegrationTestsImpl(TestRecorder recorder) {
+    public IntegrationTestsImpl(TestRecorder recorder, TestOptions options) {
         this.recorder = recorder;
+        this.options = options;
     }
 
     public TestRecorder getRecorder() {
@@ -43,10 +47,27 @@ public class IntegrationTestsImpl implements IntegrationTests {
 
     public void execute() {
         recorder.start();
-        for (TestSet testSet : testSets) {
-            testSet.execute();
+        if (options.isCaptureOutput()) {
+            OutputCapture.install();
+        }
+        StackSampler sampler = null;
+        if (options.isProfile()) {
+            sampler = new StackSampler(options.getProfileInterval());
+            sampler.start();
+        }
+        try {
+            for (TestSet testSet : testSets) {
+                testSet.execute(sampler);
+            }
+        } finally {
+            if (sampler != null) {
+                sampler.stop();
+            }
+            if (options.isCaptureOutput()) {
+                OutputCapture.uninstall();
+            }
+            recorder.stop();
         }
-        recorder.stop();
     }
 
 }
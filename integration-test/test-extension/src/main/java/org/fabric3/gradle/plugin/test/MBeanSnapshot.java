@@ -0,0 +1,111 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.fabric3.gradle.plugin.api.test.TestSuiteResult;
+
+/**
+ * The values of a set of MBean attributes at a point in time.
+ *
+ * All MBean servers in the JVM are queried, so attributes of MBeans registered by the runtime are found whether it uses the platform MBean server or its
+ * own. Attributes that cannot be read are omitted.
+ */
+class MBeanSnapshot {
+    static final String PROPERTY_PREFIX = "fabric3.mbean.";
+
+    private Map<String, Object> values = new LinkedHashMap<>();
+
+    /**
+     * Reads the attributes.
+     *
+     * @param attributes the attribute names keyed by object name or object name pattern
+     * @return the snapshot
+     */
+    static MBeanSnapshot take(Map<String, Set<String>> attributes) {
+        MBeanSnapshot snapshot = new MBeanSnapshot();
+        List<MBeanServer> servers = getServers();
+        for (Map.Entry<String, Set<String>> entry : attributes.entrySet()) {
+            String[] names = entry.getValue().toArray(new String[entry.getValue().size()]);
+            for (MBeanServer server : servers) {
+                try {
+                    for (ObjectName objectName : server.queryNames(new ObjectName(entry.getKey()), null)) {
+                        for (Object attribute : server.getAttributes(objectName, names)) {
+                            Attribute value = (Attribute) attribute;
+                            snapshot.values.put(objectName + "#" + value.getName(), value.getValue());
+                        }
+                    }
+                } catch (JMException e) {
+                    // the name is invalid or the MBean was unregistered while it was read
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Adds the changes from this snapshot to a later one to a suite result as properties. Numeric attributes are reported as the difference between the
+     * values and other attributes are reported as the earlier and later values if they changed.
+     *
+     * @param after  the later snapshot
+     * @param result the suite result
+     */
+    void addChanges(MBeanSnapshot after, TestSuiteResult result) {
+        Map<String, Object> remaining = new LinkedHashMap<>(after.values);
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            String key = entry.getKey();
+            Object before = entry.getValue();
+            Object value = remaining.remove(key);
+            if (before instanceof Number && value instanceof Number) {
+                result.setProperty(PROPERTY_PREFIX + key, difference((Number) before, (Number) value));
+            } else if (before == null ? value != null : !before.equals(value)) {
+                result.setProperty(PROPERTY_PREFIX + key, before + " -> " + value);
+            }
+        }
+        for (Map.Entry<String, Object> entry : remaining.entrySet()) {
+            // the MBean was registered while the tests ran
+            result.setProperty(PROPERTY_PREFIX + entry.getKey(), "null -> " + entry.getValue());
+        }
+    }
+
+    private static String difference(Number before, Number after) {
+        if (before instanceof Double || before instanceof Float || after instanceof Double || after instanceof Float) {
+            return String.valueOf(after.doubleValue() - before.doubleValue());
+        }
+        return String.valueOf(after.longValue() - before.longValue());
+    }
+
+    private static List<MBeanServer> getServers() {
+        List<MBeanServer> servers = new ArrayList<>(MBeanServerFactory.findMBeanServer(null));
+        MBeanServer platform = ManagementFactory.getPlatformMBeanServer();
+        if (!servers.contains(platform)) {
+            servers.add(platform);
+        }
+        return servers;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Periodically samples the stack of the thread running a test.
+ *
+ * A single daemon thread samples the thread registered through {@link #begin(Thread)} until {@link #end()} is called. Identical stacks are counted
+ * rather than stored, and are only converted to text when a profile is written in the collapsed-stack format read by flame graph tools.
+ */
+class StackSampler {
+    private static final long STOP_TIMEOUT = TimeUnit.SECONDS.toMillis(1);
+
+    private long interval;
+    private Thread thread;
+    private volatile Profile current;
+    private volatile boolean stopped;
+
+    /**
+     * Constructor.
+     *
+     * @param interval the sampling interval in milliseconds
+     */
+    StackSampler(long interval) {
+        this.interval = TimeUnit.MILLISECONDS.toNanos(Math.max(1, interval));
+    }
+
+    /**
+     * Starts the sampling thread.
+     */
+    void start() {
+        thread = new Thread("fabric3-profiler") {
+            public void run() {
+                sample();
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the sampling thread, waiting a bounded amount of time for it to exit.
+     */
+    void stop() {
+        stopped = true;
+        current = null;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(STOP_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts sampling a thread.
+     *
+     * @param target the thread
+     */
+    void begin(Thread target) {
+        current = new Profile(target);
+    }
+
+    /**
+     * Stops sampling and returns the samples taken since {@link #begin(Thread)}.
+     *
+     * @return the profile
+     */
+    Profile end() {
+        Profile profile = current;
+        current = null;
+        return profile;
+    }
+
+    private void sample() {
+        while (!stopped) {
+            LockSupport.parkNanos(this, interval);
+            Profile profile = current;
+            if (profile != null) {
+                profile.add(profile.target.getStackTrace());
+            }
+        }
+    }
+
+    /**
+     * The samples taken for a test.
+     */
+    static class Profile {
+        private Thread target;
+        private Map<List<StackTraceElement>, Integer> stacks = new HashMap<>();
+        private int samples;
+
+        private Profile(Thread target) {
+            this.target = target;
+        }
+
+        private synchronized void add(StackTraceElement[] stack) {
+            if (stack.length == 0) {
+                return;
+            }
+            List<StackTraceElement> key = Arrays.asList(stack);
+            Integer count = stacks.get(key);
+            stacks.put(key, count == null ? 1 : count + 1);
+            samples++;
+        }
+
+        synchronized int getSamples() {
+            return samples;
+        }
+
+        /**
+         * Writes the samples with one line per distinct stack, listing frames from the outermost call separated by semicolons followed by the number of
+         * samples.
+         *
+         * @param file the file
+         * @throws IOException if there is an error writing the file
+         */
+        synchronized void write(File file) throws IOException {
+            Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                for (Map.Entry<List<StackTraceElement>, Integer> entry : stacks.entrySet()) {
+                    List<StackTraceElement> stack = entry.getKey();
+                    StringBuilder builder = new StringBuilder();
+                    for (int i = stack.size() - 1; i >= 0; i--) {
+                        StackTraceElement frame = stack.get(i);
+                        builder.append(frame.getClassName()).append('.').append(frame.getMethodName());
+                        if (i > 0) {
+                            builder.append(';');
+                        }
+                    }
+                    builder.append(' ').append(entry.getValue()).append('\n');
+                    writer.write(builder.toString());
+                }
+            }
+        }
+    }
+}
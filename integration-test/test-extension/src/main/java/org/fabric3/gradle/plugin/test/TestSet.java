@@ -16,6 +16,16 @@
  */
 package org.fabric3.gradle.plugin.test;
 
+import java.io.File;
+import java.io.IOException;
+
+import org.fabric3.gradle.plugin.api.jfr.FlightEvent;
+import org.fabric3.gradle.plugin.api.jfr.FlightEvents;
+import org.fabric3.gradle.plugin.api.test.OutputCapture;
+import org.fabric3.gradle.plugin.api.test.ResourceMeter;
+import org.fabric3.gradle.plugin.api.test.ResourceUsage;
+import org.fabric3.gradle.plugin.api.test.TestFailure;
+import org.fabric3.gradle.plugin.api.test.TestOptions;
 import org.fabric3.gradle.plugin.api.test.TestRecorder;
 import org.fabric3.gradle.plugin.api.test.TestResult;
 import org.fabric3.gradle.plugin.api.test.TestSuiteResult;
@@ -33,34 +43,105 @@ public class TestSet {
     private String testClassName;
     private Wire wire;
     private TestRecorder recorder;
+    private TestOptions options;
 
-    public TestSet(String testClassName, Wire wire, TestRecorder recorder) {
+    public TestSet(String testClassName, Wire wire, TestRecorder recorder, TestOptions options) {
         this.testClassName = testClassName;
         this.wire = wire;
         this.recorder = recorder;
+        this.options = options;
     }
 
     public void execute() {
+        execute(null);
+    }
+
+    /**
+     * Executes the tests, sampling the stack of the current thread while each test runs if a sampler is given.
+     *
+     * @param sampler the sampler or null
+     */
+    void execute(StackSampler sampler) {
         Message message = MessageCache.getAndResetMessage();
         WorkContext workContext = WorkContextCache.getAndResetThreadWorkContext();
         TestSuiteResult suiteResult = new TestSuiteResult(testClassName);
+        MBeanSnapshot before = options.getMBeanAttributes().isEmpty() ? null : MBeanSnapshot.take(options.getMBeanAttributes());
         suiteResult.start();
+        recorder.suiteStarted(suiteResult);
+        FlightEvent setEvent = FlightEvents.TEST_SET.begin();
         for (InvocationChain chain : wire.getInvocationChains()) {
+            String testMethodName = chain.getPhysicalOperation().getName();
+            recorder.testStarted(testClassName, testMethodName);
             message.setWorkContext(workContext);
+            TimingInterceptor timing = options.isMeasureOverhead() ? TimingInterceptor.install(chain) : null;
+            OutputCapture capture = options.isCaptureOutput() ? OutputCapture.begin(options.getOutputLimit()) : null;
+            FlightEvent invocationEvent = FlightEvents.TEST_INVOCATION.begin();
+            ResourceMeter meter = options.isMeasureResources() ? ResourceMeter.start() : null;
+            if (sampler != null) {
+                sampler.begin(Thread.currentThread());
+            }
             long start = System.currentTimeMillis();
-            Message response = chain.getHeadInterceptor().invoke(message);
+            long startNanos = System.nanoTime();
+            Message response;
+            try {
+                response = chain.getHeadInterceptor().invoke(message);
+            } finally {
+                if (capture != null) {
+                    capture.end();
+                }
+            }
+            long invocationTime = System.nanoTime() - startNanos;
+            StackSampler.Profile profile = sampler != null ? sampler.end() : null;
+            ResourceUsage usage = meter != null ? meter.stop() : null;
+            if (invocationEvent != null) {
+                invocationEvent.commit(testClassName, testMethodName, response.isFault() ? "failed" : "passed");
+            }
             long elapsed = System.currentTimeMillis() - start;
+            if (profile != null && elapsed >= options.getProfileThreshold()) {
+                writeProfile(profile, testMethodName, suiteResult);
+            }
             TestResult result;
             if (response.isFault()) {
-                result = new TestResult(testClassName, chain.getPhysicalOperation().getName(), (Throwable) response.getBody(), start, elapsed);
+                TestFailure failure = recorder.capture((Throwable) response.getBody(), testClassName);
+                result = new TestResult(testClassName, testMethodName, failure, start, elapsed);
             } else {
-                result = new TestResult(testClassName, chain.getPhysicalOperation().getName(), TestResult.Type.SUCCESS, start, elapsed);
+                result = new TestResult(testClassName, testMethodName, TestResult.Type.SUCCESS, start, elapsed);
+            }
+            result.setResourceUsage(usage);
+            if (timing != null && timing.getElapsedTime() != ResourceUsage.UNAVAILABLE) {
+                result.setInvocationTimes(timing.getElapsedTime(), Math.max(0, invocationTime - timing.getElapsedTime()));
+            }
+            if (capture != null && (response.isFault() || options.isCaptureSuccessfulOutput())) {
+                result.setOutput(capture.getOut(), capture.getErr());
             }
             suiteResult.add(result);
+            recorder.testFinished(result);
             message.reset();
             workContext.reset();
         }
         suiteResult.stop();
+        if (before != null) {
+            before.addChanges(MBeanSnapshot.take(options.getMBeanAttributes()), suiteResult);
+        }
+        if (setEvent != null) {
+            setEvent.commit(testClassName, suiteResult.getFailedTests() > 0 ? "failed" : "passed");
+        }
         recorder.result(suiteResult);
     }
+
+    /**
+     * Writes a profile to the profile directory. Write errors are reported as a property of the suite so they appear in the test report.
+     */
+    private void writeProfile(StackSampler.Profile profile, String testMethodName, TestSuiteResult suiteResult) {
+        if (profile.getSamples() == 0) {
+            return;
+        }
+        String name = (testClassName + "." + testMethodName).replaceAll("[^A-Za-z0-9._$-]", "_") + ".collapsed";
+        File file = new File(options.getProfileDirectory(), name);
+        try {
+            profile.write(file);
+        } catch (IOException e) {
+            suiteResult.setProperty("fabric3.profileError." + testMethodName, "Error writing profile " + file + ": " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ * Fabric3
+ * Copyright (c) 2009-2015 Metaform Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fabric3.gradle.plugin.test;
+
+import org.fabric3.gradle.plugin.api.test.ResourceUsage;
+import org.fabric3.spi.container.invocation.Message;
+import org.fabric3.spi.container.wire.Interceptor;
+import org.fabric3.spi.container.wire.InvocationChain;
+
+/**
+ * Measures the time spent in the remainder of an invocation chain. Inserted in front of the target invoker of a test wire, it measures the time spent in
+ * the test method, so the time spent in policy, transaction and other interceptors can be derived from the total time of the invocation.
+ */
+public class TimingInterceptor implements Interceptor {
+    private Interceptor next;
+    private long elapsedTime = ResourceUsage.UNAVAILABLE;
+
+    /**
+     * Returns the timing interceptor of a chain, inserting one in front of the last interceptor of the chain, which is the target invoker, if the chain
+     * does not have one yet. The time of the previous invocation is cleared so that it is not reported if an earlier interceptor does not invoke the rest
+     * of the chain.
+     *
+     * @param chain the chain
+     * @return the interceptor or null if the chain is empty
+     */
+    public static TimingInterceptor install(InvocationChain chain) {
+        Interceptor tail = chain.getTailInterceptor();
+        if (tail == null) {
+            return null;
+        }
+        int index = 0;
+        for (Interceptor interceptor = chain.getHeadInterceptor(); interceptor != tail; interceptor = interceptor.getNext()) {
+            if (interceptor instanceof TimingInterceptor) {
+                TimingInterceptor timing = (TimingInterceptor) interceptor;
+                timing.elapsedTime = ResourceUsage.UNAVAILABLE;
+                return timing;
+            }
+            index++;
+        }
+        TimingInterceptor timing = new TimingInterceptor();
+        chain.addInterceptor(index, timing);
+        return timing;
+    }
+
+    public Message invoke(Message message) {
+        long start = System.nanoTime();
+        try {
+            return next.invoke(message);
+        } finally {
+            elapsedTime = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Returns the time spent in the rest of the chain by the last invocation.
+     *
+     * @return the time in nanoseconds or {@link ResourceUsage#UNAVAILABLE} if the interceptor has not been invoked
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    public void setNext(Interceptor next) {
+        this.next = next;
+    }
+
+    public Interceptor getNext() {
+        return next;
+    }
+}